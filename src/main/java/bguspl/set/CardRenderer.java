@@ -0,0 +1,164 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws card images procedurally from their feature vectors, for configurations that have no shipped image assets.
+ * Images are rendered on demand and kept in a bounded least-recently-used cache, so memory is proportional to the
+ * number of cards actually shown rather than to the deck size.
+ * <p>
+ * Feature mapping: feature 0 is the number of shapes, feature 1 the color, feature 2 the shape and feature 3 the
+ * shading. Any further features are printed as values in the bottom corner of the card.
+ */
+class CardRenderer {
+
+    private final Config config;
+    private final Util util;
+    private final Map<Integer, Image> cache;
+
+    /**
+     * @param config   - the game configuration (card dimensions and feature counts).
+     * @param util     - used to decode a card id into its features.
+     * @param capacity - the maximum number of rendered images to keep.
+     */
+    CardRenderer(Config config, Util util, int capacity) {
+        this.config = config;
+        this.util = util;
+        this.cache = new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the image of a card, rendering it if it is not cached.
+     *
+     * @param card - the card id.
+     * @return - the card image.
+     */
+    synchronized Image image(int card) {
+        Image image = cache.get(card);
+        if (image == null) {
+            image = render(util.cardToFeatures(card));
+            cache.put(card, image);
+        }
+        return image;
+    }
+
+    /**
+     * Renders an empty card slot.
+     */
+    Image emptyCard() {
+        BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.LIGHT_GRAY);
+        g.draw(cardOutline());
+        g.dispose();
+        return image;
+    }
+
+    private Shape cardOutline() {
+        int margin = Math.max(2, Math.min(config.cellWidth, config.cellHeight) / 20);
+        return new RoundRectangle2D.Double(margin, margin, config.cellWidth - 2 * margin - 1,
+                config.cellHeight - 2 * margin - 1, 4 * margin, 4 * margin);
+    }
+
+    private int feature(int[] features, int index) {
+        return index < features.length ? features[index] : 0;
+    }
+
+    private BufferedImage render(int[] features) {
+        int width = config.cellWidth;
+        int height = config.cellHeight;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        Shape outline = cardOutline();
+        g.setColor(Color.WHITE);
+        g.fill(outline);
+        g.setColor(Color.GRAY);
+        g.draw(outline);
+
+        int count = feature(features, 0) + 1;
+        Color color = Color.getHSBColor((float) feature(features, 1) / config.featureSize, 0.85f, 0.8f);
+        int shapeKind = feature(features, 2);
+        int shading = feature(features, 3);
+
+        // lay the shapes out in a single row, shrinking them when there are many
+        double slotWidth = width * 0.8 / config.featureSize;
+        double shapeWidth = slotWidth * 0.8;
+        double shapeHeight = Math.min(height * 0.6, shapeWidth * 2);
+        double left = (width - slotWidth * count) / 2;
+        double top = (height - shapeHeight) / 2;
+
+        g.setStroke(new BasicStroke(Math.max(1.5f, (float) shapeWidth / 20)));
+        for (int i = 0; i < count; ++i) {
+            double x = left + i * slotWidth + (slotWidth - shapeWidth) / 2;
+            Shape shape = shape(shapeKind, x, top, shapeWidth, shapeHeight);
+            fill(g, shape, color, shading);
+            g.setColor(color);
+            g.draw(shape);
+        }
+
+        if (features.length > 4) {
+            StringBuilder extra = new StringBuilder();
+            for (int i = 4; i < features.length; ++i)
+                extra.append(features[i]).append(' ');
+            g.setColor(Color.DARK_GRAY);
+            g.setFont(new Font("Serif", Font.PLAIN, Math.max(10, height / 10)));
+            g.drawString(extra.toString().trim(), width / 12, height - height / 12);
+        }
+
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Value 0 is an oval, any other value v is a regular polygon with v + 2 corners.
+     */
+    private Shape shape(int kind, double x, double y, double width, double height) {
+        if (kind == 0)
+            return new Ellipse2D.Double(x, y, width, height);
+
+        int corners = kind + 2;
+        Path2D.Double polygon = new Path2D.Double();
+        for (int i = 0; i < corners; ++i) {
+            double angle = -Math.PI / 2 + 2 * Math.PI * i / corners;
+            double px = x + width / 2 + Math.cos(angle) * width / 2;
+            double py = y + height / 2 + Math.sin(angle) * height / 2;
+            if (i == 0) polygon.moveTo(px, py);
+            else polygon.lineTo(px, py);
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    /**
+     * Value 0 is solid, the last value is an outline and the values in between are stripes of decreasing density.
+     */
+    private void fill(Graphics2D g, Shape shape, Color color, int shading) {
+        if (shading == 0) {
+            g.setColor(color);
+            g.fill(shape);
+        } else if (shading < config.featureSize - 1) {
+            Rectangle bounds = shape.getBounds();
+            int gap = 2 + 2 * shading;
+            Shape clip = g.getClip();
+            g.clip(shape);
+            g.setColor(color);
+            for (int y = bounds.y; y < bounds.y + bounds.height; y += gap)
+                g.drawLine(bounds.x, y, bounds.x + bounds.width, y);
+            g.setClip(clip);
+        }
+    }
+}
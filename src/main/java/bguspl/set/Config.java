@@ -15,12 +15,48 @@ import java.util.logging.Logger;
  */
 public class Config {
 
+    /**
+     * The level and format of the game log (applied to the logger the configuration is read with)
+     */
+    public final Level logLevel;
+    public final String logFormat;
+
     /**
      * Random spin cycles for Config::randomSpin (for debugging / testing)
      */
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The time (in milliseconds) between metrics dumps to the log (0 or less for no dumps)
+     */
+    public final long metricsDumpMillis;
+
+    /**
+     * Whether to expose the metrics as a JMX MBean or not
+     */
+    public final boolean metricsJmx;
+
+    /**
+     * Whether to apply changes to the configuration file while the game runs (the runtime-tunable settings only)
+     */
+    public final boolean configReload;
+
+    /**
+     * The file the results of every player in every game are appended to (empty for none)
+     */
+    public final String statsFile;
+
+    /**
+     * The file the game state is saved to periodically, and resumed from on startup if it exists (empty for none)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The number of milliseconds between checkpoints of the game state
+     */
+    public final long checkpointMillis;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -36,6 +72,11 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The minimal number of cards for which sets are searched in parallel
+     */
+    public final int parallelFindSetsThreshold;
+
     /**
      * The number of human players in the game.
      */
@@ -52,10 +93,15 @@ public class Config {
     public final int players;
 
     /**
-     * Whether to print out hints to the console or not
+     * Whether to log hints (the sets on the table) or not
      */
     public final boolean hints;
 
+    /**
+     * Whether the dealer chooses the cards it places so that there is always a set on the table (when possible)
+     */
+    public final boolean ensureSetOnTable;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -66,6 +112,11 @@ public class Config {
      */
     public final long turnTimeoutWarningMillis;
 
+    /**
+     * The granularity (in milliseconds) of the countdown display while the turn countdown warning is shown
+     */
+    public final long turnTimeoutWarningResolutionMillis;
+
     /**
      * The number of milliseconds a player gets frozen for when he scores a point
      */
@@ -77,7 +128,7 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * The number of milliseconds the display waits before showing a card being removed/placed on the table
      */
     public final long tableDelayMillis;
 
@@ -86,6 +137,31 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The strategy computer players use to choose keys ("random" or "setfinder")
+     */
+    public final String computerStrategy;
+
+    /**
+     * The distribution of the time computer players think before each key press ("fixed", "uniform" or "gaussian")
+     */
+    public final String computerThinkDistribution;
+
+    /**
+     * The mean number of milliseconds computer players think before each key press
+     */
+    public final long computerThinkMillis;
+
+    /**
+     * The spread (in milliseconds) of the computer players think time (half range for uniform, deviation for gaussian)
+     */
+    public final long computerThinkJitterMillis;
+
+    /**
+     * The number of threads generating the key presses of all computer players
+     */
+    public final int computerSchedulerThreads;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -132,6 +208,32 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The maximum number of pending events queued for each user interface sink
+     */
+    public final int userInterfaceQueueCapacity;
+
+    /**
+     * The TCP port spectators connect to in order to watch the game (-1 to disable, 0 for any free port)
+     */
+    public final int spectatorPort;
+
+    /**
+     * The number of milliseconds between two consecutive state updates sent to spectators
+     */
+    public final long spectatorTickMillis;
+
+    /**
+     * The TCP port remote human players connect to (-1 to disable, 0 for any free port)
+     */
+    public final int remotePlayerPort;
+
+    /**
+     * The local address the spectator and remote player servers listen on (empty for the loopback address only, so
+     * other hosts can connect only if an address is set, e.g. 0.0.0.0 for all interfaces)
+     */
+    public final String networkBindAddress;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -183,8 +285,8 @@ public class Config {
     public Config(Logger logger, Properties properties) {
 
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
         Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
 
         // for debugging
@@ -193,10 +295,19 @@ public class Config {
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
 
+        // metrics
+        metricsDumpMillis = (long) (Double.parseDouble(properties.getProperty("MetricsDumpSeconds", "0")) * 1000.0);
+        metricsJmx = Boolean.parseBoolean(properties.getProperty("MetricsJmx", "False"));
+        configReload = Boolean.parseBoolean(properties.getProperty("ConfigReload", "False"));
+        statsFile = properties.getProperty("StatsFile", "").trim();
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointMillis = Math.max(1L, (long) (Double.parseDouble(properties.getProperty("CheckpointSeconds", "5")) * 1000.0));
+
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        parallelFindSetsThreshold = Integer.parseInt(properties.getProperty("ParallelFindSetsThreshold", "500"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
@@ -206,10 +317,17 @@ public class Config {
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
+        ensureSetOnTable = Boolean.parseBoolean(properties.getProperty("EnsureSetOnTable", turnTimeoutMillis <= 0 ? "True" : "False"));
+        turnTimeoutWarningResolutionMillis = Math.max(1L, (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningResolutionSeconds", "0.01")) * 1000.0));
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        computerStrategy = properties.getProperty("ComputerStrategy", "random").trim().toLowerCase();
+        computerThinkDistribution = properties.getProperty("ComputerThinkDistribution", "fixed").trim().toLowerCase();
+        computerThinkMillis = (long) (Double.parseDouble(properties.getProperty("ComputerThinkSeconds", "0.02")) * 1000.0);
+        computerThinkJitterMillis = (long) (Double.parseDouble(properties.getProperty("ComputerThinkJitterSeconds", "0")) * 1000.0);
+        computerSchedulerThreads = Math.max(1, Integer.parseInt(properties.getProperty("ComputerSchedulerThreads", "1")));
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +342,13 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        userInterfaceQueueCapacity = Integer.parseInt(properties.getProperty("UserInterfaceQueueCapacity", "1024"));
+
+        // network settings
+        spectatorPort = Integer.parseInt(properties.getProperty("SpectatorPort", "-1"));
+        spectatorTickMillis = Math.max(1L, (long) (Double.parseDouble(properties.getProperty("SpectatorTickSeconds", "0.05")) * 1000.0));
+        remotePlayerPort = Integer.parseInt(properties.getProperty("RemotePlayerPort", "-1"));
+        networkBindAddress = properties.getProperty("NetworkBindAddress", "").trim();
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -0,0 +1,171 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Watches the configuration file and publishes a new configuration snapshot to the game environment whenever the
+ * file changes, without restarting the game. The game only reads the settings in TUNABLE_PROPERTIES from the new
+ * snapshot; changes to any other setting (e.g. the table size or the number of players) are logged and take effect
+ * after a restart. A file that cannot be read or parsed is ignored, and the current configuration stays.
+ * <p>
+ * The log level and format are the exception: they are not read from the snapshot but applied to the game's logger
+ * by the watcher, once the new configuration is accepted.
+ */
+public class ConfigWatcher implements Runnable, AutoCloseable {
+
+    /**
+     * The settings that take effect while the game runs.
+     */
+    public static final Set<String> TUNABLE_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "LogLevel", "LogFormat", "Hints", "EnsureSetOnTable", "TurnTimeoutSeconds", "TurnTimeoutWarningSeconds",
+            "TurnTimeoutWarningResolutionSeconds", "PointFreezeSeconds", "PenaltyFreezeSeconds", "TableDelaySeconds",
+            "EndGamePauseSeconds", "ComputerThinkDistribution", "ComputerThinkSeconds", "ComputerThinkJitterSeconds")));
+
+    /**
+     * How long to wait for a file change to settle (editors often write a file in several steps).
+     */
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Env env;
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * The contents of the file the current configuration was read from.
+     */
+    private Properties properties;
+
+    /**
+     * @param env  - the game environment (its current configuration is replaced on changes).
+     * @param file - the configuration file.
+     * @throws IOException - if the file's directory cannot be watched.
+     */
+    public ConfigWatcher(Env env, Path file) throws IOException {
+        this.env = env;
+        this.file = file.toAbsolutePath();
+        this.properties = read();
+        if (properties == null) properties = new Properties();
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this, "config-watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the file.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        ThreadLogger.logStart(env.logger, Thread.currentThread().getName());
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents())
+                        changed |= file.getFileName().equals(event.context());
+                    key.reset();
+                    Thread.sleep(SETTLE_MILLIS);
+                } while ((key = watchService.poll()) != null);
+                if (changed) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        } finally {
+            ThreadLogger.logStop(env.logger, Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * @return - the contents of the configuration file (null if it cannot be read).
+     */
+    private Properties read() {
+        Properties read = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            read.load(is);
+            return read;
+        } catch (IOException | IllegalArgumentException e) {
+            env.logger.severe("cannot read configuration file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the configuration file and publishes it, unless it cannot be parsed or it changes the turn timeout mode
+     * (a timer, the time since the last action, or nothing), which the running game cannot switch to.
+     */
+    synchronized void reload() {
+        Properties next = read();
+        if (next == null) return;
+
+        Config current = env.currentConfig();
+        Config config;
+        try {
+            // a configuration applies its log settings to the logger it is read with, so read it with a logger of
+            // its own (still writing to the game log) and apply them below, only if the configuration is accepted
+            Logger reading = Logger.getAnonymousLogger();
+            reading.setParent(env.logger);
+            config = new Config(reading, next);
+        } catch (RuntimeException e) {
+            env.logger.severe("ignoring invalid configuration file " + file + ": " + e);
+            return;
+        }
+        if (Long.signum(config.turnTimeoutMillis) != Long.signum(current.turnTimeoutMillis)) {
+            env.logger.severe("ignoring configuration change: the turn timeout mode cannot change while playing");
+            return;
+        }
+
+        List<String> tuned = new ArrayList<>();
+        List<String> ignored = new ArrayList<>();
+        Set<String> names = new HashSet<>(properties.stringPropertyNames());
+        names.addAll(next.stringPropertyNames());
+        for (String name : names) {
+            if (Objects.equals(properties.getProperty(name), next.getProperty(name))) continue;
+            if (TUNABLE_PROPERTIES.contains(name)) tuned.add(name + "=" + next.getProperty(name));
+            else ignored.add(name);
+        }
+        Collections.sort(tuned);
+        Collections.sort(ignored);
+
+        properties = next;
+        env.publishConfig(config);
+        Main.setLoggerLevelAndFormat(env.logger, config.logLevel, config.logFormat);
+        env.logger.info("configuration reloaded: " + tuned);
+        if (!ignored.isEmpty())
+            env.logger.severe("configuration changes that take effect after a restart: " + ignored);
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            env.logger.severe("error closing configuration watcher: " + e.getMessage());
+        }
+    }
+}
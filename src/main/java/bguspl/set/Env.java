@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 public class Env {
@@ -8,11 +9,47 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Metrics metrics;
+    public final StatsStore stats;
+
+    /**
+     * The latest configuration (see ConfigWatcher). The game reads the runtime-tunable settings (timeouts, freezes,
+     * delays and hints) from it at points where a change is safe, and everything else from config, which never
+     * changes.
+     */
+    private final AtomicReference<Config> current;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new Metrics());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics) {
+        this(logger, config, ui, util, metrics, StatsStore.disabled());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics, StatsStore stats) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.metrics = metrics;
+        this.stats = stats;
+        this.current = new AtomicReference<>(config);
+    }
+
+    /**
+     * @return - the latest configuration snapshot (never changes once returned, so read it once per decision).
+     */
+    public Config currentConfig() {
+        return current.get();
+    }
+
+    /**
+     * Makes a new configuration snapshot the current one.
+     *
+     * @param config - the new configuration.
+     */
+    public void publishConfig(Config config) {
+        current.set(config);
     }
 }
@@ -0,0 +1,114 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of durations (in nanoseconds) with log-linear buckets, in the style of HdrHistogram: every
+ * power of two is split into 16 buckets, so any recorded value is reported within about 6% of its actual value, and
+ * recording is a few bit operations and one atomic increment.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of a value below its most significant bit that select its bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int msb = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return - the highest value that falls in a bucket.
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos - the duration in nanoseconds (negative durations are recorded as 0).
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Records the time passed since a start time.
+     *
+     * @param startNanos - the start time (from System.nanoTime()).
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return - the number of recorded durations.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return - the longest recorded duration (0 if none).
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return - the mean recorded duration (0 if none).
+     */
+    public long mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return - a duration that at least the percentile of recorded durations do not exceed (0 if none).
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) total += counts.get(i);
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValue(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
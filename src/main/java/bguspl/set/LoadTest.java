@@ -0,0 +1,233 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives many headless games with computer players at the same time, for capacity measurements.
+ * <p>
+ * Arguments are Key=Value pairs overriding the game configuration (see config.properties), plus:
+ * LoadTestGames - the number of games running at the same time (default 4),
+ * LoadTestSeconds - how long to drive the games (default 30) and
+ * LoadTestConfig - a configuration file to start from (default none, i.e. the game defaults).
+ * With a StatsFile, the results of all the games are recorded in that statistics file.
+ * Every game runs in its own thread group and starts over whenever it ends, until the time is up. The report has the
+ * throughput, latency percentiles and CPU time and allocations of every game slot, and the totals.
+ * For example: mvn -Ploadtest compile exec:java -Dexec.args="LoadTestGames=8 ComputerPlayers=6 ComputerStrategy=setfinder"
+ */
+public class LoadTest {
+
+    /**
+     * How often the CPU time and allocations of the game threads are sampled (threads that end are not measured
+     * after their last sample).
+     */
+    private static final long SAMPLE_MILLIS = 100;
+
+    /**
+     * A slot running one game after the other, with the metrics of all its games.
+     */
+    private static final class GameSlot implements Runnable {
+
+        private final int index;
+        private final Properties properties;
+        private final long deadline;
+        private final Metrics metrics = new Metrics();
+        private final StatsStore stats;
+        private final ThreadGroup group;
+
+        /**
+         * The CPU time and allocated bytes last sampled for each thread of the slot, by thread id.
+         */
+        private final Map<Long, long[]> usage = new HashMap<>();
+
+        private volatile Dealer dealer;
+        private int games;
+
+        GameSlot(int index, Properties properties, long deadline, StatsStore stats) {
+            this.index = index;
+            this.properties = properties;
+            this.deadline = deadline;
+            this.stats = stats;
+            this.group = new ThreadGroup("game-" + index);
+        }
+
+        @Override
+        public void run() {
+            Logger logger = Logger.getAnonymousLogger();
+            logger.setUseParentHandlers(false);
+            Config config = new Config(logger, properties);
+            logger.setLevel(Level.OFF);
+            Util util = new UtilImpl(config);
+
+            while (System.currentTimeMillis() < deadline) {
+                Env env = new Env(logger, config, new UserInterfaceMultiplexer(logger), util, metrics, stats);
+                Player[] players = new Player[config.players];
+                Table table = new Table(env);
+                dealer = new Dealer(env, table, players);
+                for (int i = 0; i < players.length; i++)
+                    players[i] = new Player(env, dealer, table, i, false);
+
+                Thread thread = new Thread(group, dealer, "dealer-" + index);
+                thread.start();
+                try {
+                    thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+                    if (thread.isAlive()) {
+                        dealer.terminate();
+                        thread.join();
+                    }
+                } catch (InterruptedException e) {
+                    dealer.terminate();
+                    return;
+                }
+                ++games;
+            }
+        }
+
+        /**
+         * Samples the CPU time and allocations of the live threads of the slot.
+         */
+        synchronized void sample(ThreadMXBean threads) {
+            Thread[] live = new Thread[group.activeCount() * 2 + 16];
+            int count = group.enumerate(live);
+            for (int i = 0; i < count; ++i) {
+                long id = live[i].getId();
+                long cpu = threads.getThreadCpuTime(id);
+                long allocated = threads instanceof com.sun.management.ThreadMXBean
+                        ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : -1;
+                if (cpu >= 0) usage.put(id, new long[]{cpu, allocated});
+            }
+        }
+
+        /**
+         * Reports the threads of the slot that are still running after its games ended.
+         */
+        void checkStopped() {
+            Thread[] live = new Thread[group.activeCount() * 2 + 16];
+            int count = group.enumerate(live);
+            for (int i = 0; i < count; ++i)
+                System.err.println("warning: game slot " + index + " thread " + live[i].getName() + " still running");
+        }
+
+        synchronized long cpuNanos() {
+            return usage.values().stream().mapToLong(u -> u[0]).sum();
+        }
+
+        synchronized long allocatedBytes() {
+            return usage.values().stream().mapToLong(u -> Math.max(0, u[1])).sum();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split > 0) properties.setProperty(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+            else System.err.println("ignoring argument " + arg + " (expected Key=Value)");
+        }
+
+        Properties gameProperties = new Properties();
+        String configFile = properties.getProperty("LoadTestConfig");
+        if (configFile != null) {
+            try (InputStream is = Files.newInputStream(Paths.get(configFile))) {
+                gameProperties.load(is);
+            } catch (IOException e) {
+                System.err.println("cannot read configuration file " + configFile + ": " + e.getMessage());
+                return;
+            }
+        }
+        // headless games of computer players only, without artificial delays
+        gameProperties.setProperty("HumanPlayers", "0");
+        gameProperties.setProperty("ComputerPlayers", "4");
+        gameProperties.setProperty("TableDelaySeconds", "0");
+        gameProperties.setProperty("EndGamePauseSeconds", "0");
+        gameProperties.setProperty("Hints", "False");
+        gameProperties.putAll(properties);
+
+        int gameCount = Integer.parseInt(properties.getProperty("LoadTestGames", "4"));
+        long durationMillis = (long) (Double.parseDouble(properties.getProperty("LoadTestSeconds", "30")) * 1000.0);
+
+        StatsStore stats = StatsStore.disabled();
+        String statsFile = gameProperties.getProperty("StatsFile", "").trim();
+        if (!statsFile.isEmpty()) {
+            try {
+                stats = new StatsStore(Logger.getAnonymousLogger(), Paths.get(statsFile));
+            } catch (IOException e) {
+                System.err.println("cannot open statistics file " + statsFile + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        long deadline = start + durationMillis;
+        GameSlot[] slots = new GameSlot[gameCount];
+        Thread[] drivers = new Thread[gameCount];
+        for (int i = 0; i < gameCount; ++i) {
+            slots[i] = new GameSlot(i, gameProperties, deadline, stats);
+            drivers[i] = new Thread(slots[i], "load-test-" + i);
+            drivers[i].start();
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads.isThreadCpuTimeSupported()) threads.setThreadCpuTimeEnabled(true);
+        while (System.currentTimeMillis() < deadline) {
+            for (GameSlot slot : slots) slot.sample(threads);
+            Thread.sleep(SAMPLE_MILLIS);
+        }
+        for (GameSlot slot : slots) slot.sample(threads);
+        for (Thread driver : drivers) driver.join(TimeUnit.SECONDS.toMillis(10));
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+        // every game stops all its threads, so nothing should be left running (or keep the JVM from exiting)
+        for (GameSlot slot : slots) slot.checkStopped();
+
+        stats.close();
+        report(slots, gameProperties, seconds);
+        if (!statsFile.isEmpty()) {
+            System.out.println("statistics (" + stats.droppedResults() + " results dropped):");
+            for (StatsStore.Summary summary : stats.summaries()) System.out.println(summary);
+        }
+    }
+
+    private static void report(GameSlot[] slots, Properties properties, double seconds) {
+        System.out.printf(Locale.ROOT, "load test: %d games, %s computer players each, strategy %s, %.1f seconds%n",
+                slots.length, properties.getProperty("ComputerPlayers"),
+                properties.getProperty("ComputerStrategy", "random"), seconds);
+        System.out.printf(Locale.ROOT, "%-6s %6s %9s %9s %10s %10s %10s %10s %9s %9s%n", "slot", "games",
+                "claims/s", "sets/s", "claim p50", "claim p99", "key p50", "key p99", "cpu ms", "alloc MB");
+
+        long claims = 0, sets = 0, games = 0, cpu = 0, allocated = 0;
+        for (GameSlot slot : slots) {
+            Map<String, Long> snapshot = slot.metrics.snapshot();
+            long slotClaims = snapshot.getOrDefault("dealer.claims", 0L);
+            long slotSets = snapshot.getOrDefault("dealer.sets", 0L);
+            System.out.printf(Locale.ROOT, "%-6d %6d %9.1f %9.1f %8dus %8dus %8dus %8dus %9d %9.1f%n",
+                    slot.index, slot.games, slotClaims / seconds, slotSets / seconds,
+                    snapshot.getOrDefault("player.claimToVerdict.p50Micros", 0L),
+                    snapshot.getOrDefault("player.claimToVerdict.p99Micros", 0L),
+                    snapshot.getOrDefault("player.keyPressToToken.p50Micros", 0L),
+                    snapshot.getOrDefault("player.keyPressToToken.p99Micros", 0L),
+                    slot.cpuNanos() / 1_000_000, slot.allocatedBytes() / 1e6);
+            claims += slotClaims;
+            sets += slotSets;
+            games += slot.games;
+            cpu += slot.cpuNanos();
+            allocated += slot.allocatedBytes();
+        }
+        System.out.printf(Locale.ROOT, "%-6s %6d %9.1f %9.1f %10s %10s %10s %10s %9d %9.1f%n", "total", games,
+                claims / seconds, sets / seconds, "", "", "", "", cpu / 1_000_000, allocated / 1e6);
+    }
+}
@@ -1,17 +1,26 @@
 package bguspl.set;
 
+import bguspl.set.ex.Checkpoint;
+import bguspl.set.ex.CheckpointWriter;
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
+import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.*;
 
+import javax.management.JMException;
+
 /**
  * This class contains the game's main function.
  */
@@ -26,7 +35,7 @@ public class Main {
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
+        if (dealer != null) dealer.suspend();
         mainThread.join();
     }
 
@@ -46,18 +55,85 @@ public class Main {
         Util util = new UtilImpl(config);
 
         Player[] players = new Player[config.players]; //config.players
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(logger);
+
+        Metrics metrics = new Metrics();
+        metrics.gauge("ui.pendingEvents", multiplexer::pendingEvents);
+        metrics.gauge("ui.droppedEvents", multiplexer::droppedEvents);
+        metrics.startDump(logger, config.metricsDumpMillis);
+        if (config.metricsJmx) {
+            try {
+                metrics.registerMBean();
+            } catch (JMException e) {
+                logger.severe("error registering metrics mbean: " + e.getMessage());
+            }
+        }
+
+        StatsStore stats = StatsStore.disabled();
+        if (!config.statsFile.isEmpty()) {
+            try {
+                stats = new StatsStore(logger, Paths.get(config.statsFile));
+            } catch (IOException e) {
+                logger.severe("error opening player statistics file: " + e.getMessage());
+            }
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, multiplexer, util, metrics, stats);
+
+        ConfigWatcher configWatcher = null;
+        if (config.configReload) {
+            try {
+                configWatcher = new ConfigWatcher(env, Paths.get("config.properties"));
+                configWatcher.start();
+            } catch (IOException e) {
+                logger.severe("error watching the configuration file: " + e.getMessage());
+            }
+        }
+
+        // the card images are decoded and the window is built while the game starts (the window gets the events of
+        // the first deal once it is ready); the events are logged on the window's dispatcher thread too, so the game
+        // threads only enqueue them; a window that falls too far behind is shown the current table instead of the
+        // events it missed, so it never shows a stale card or token and the game never waits for it
+        CompletableFuture<Image[]> cardImages = UserInterfaceSwing.loadCardImages(config);
+        multiplexer.addSink("swing", () -> {
+            UserInterface swing = null;
+            try {
+                swing = new UserInterfaceSwing(logger, config, util, players, cardImages);
+                if (config.tableDelayMillis > 0 || config.configReload)
+                    swing = new PacedUserInterface(swing,
+                            PacedUserInterface.Policy.of(() -> env.currentConfig().tableDelayMillis));
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                logger.severe("error creating swing user interface: " + e.getMessage());
+                logger.severe("will try to run without user interface");
+                if (config.humanPlayers > 0)
+                    logger.severe("warning: running with human players with no user interface");
+            }
+            return new UserInterfaceDecorator(logger, util, swing);
+        }, config.userInterfaceQueueCapacity, UserInterfaceMultiplexer.OverflowPolicy.RESYNC);
+        if (config.spectatorPort >= 0) {
+            try {
+                SpectatorServer spectators = new SpectatorServer(logger, config, config.spectatorPort);
+                spectators.start();
+                // the spectator snapshots come from the server's own copy of the table, so it must not miss events
+                multiplexer.addSink("spectators", spectators, config.userInterfaceQueueCapacity,
+                        UserInterfaceMultiplexer.OverflowPolicy.RESYNC);
+                logger.info("spectators can connect to port " + spectators.getPort());
+            } catch (IOException e) {
+                logger.severe("error creating spectator server: " + e.getMessage());
+            }
+        }
+        if (config.remotePlayerPort >= 0) {
+            try {
+                RemotePlayerServer remotePlayers = new RemotePlayerServer(logger, config, players, config.remotePlayerPort);
+                remotePlayers.start();
+                // remote players pick their cards from the server's copy of the table, like spectators
+                multiplexer.addSink("remote-players", remotePlayers, config.userInterfaceQueueCapacity,
+                        UserInterfaceMultiplexer.OverflowPolicy.RESYNC);
+                logger.info("remote players can connect to port " + remotePlayers.getPort());
+            } catch (IOException e) {
+                logger.severe("error creating remote player server: " + e.getMessage());
+            }
+        }
 
         // create the game entities
         Table table = new Table(env);
@@ -65,6 +141,24 @@ public class Main {
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers); // i < env.config.humanPlayers
 
+        // resume the game that was running when the last run died or was closed, and save this one as it goes
+        CheckpointWriter checkpoints = null;
+        if (!config.checkpointFile.isEmpty()) {
+            Path checkpointFile = Paths.get(config.checkpointFile);
+            if (Files.exists(checkpointFile)) {
+                try {
+                    Checkpoint checkpoint = Checkpoint.read(checkpointFile, config);
+                    dealer.resume(checkpoint);
+                    logger.info("resuming the game saved at " + new Date(checkpoint.savedAtMillis()));
+                } catch (IOException e) {
+                    logger.severe("starting a new game, cannot resume from checkpoint " + checkpointFile + ": "
+                            + e.getMessage());
+                }
+            }
+            checkpoints = new CheckpointWriter(logger, checkpointFile, config.deckSize);
+            dealer.checkpointTo(checkpoints, config.checkpointMillis);
+        }
+
         // start the dealer thread
         ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
         dealerThread.startWithLog();
@@ -72,13 +166,23 @@ public class Main {
         try {
             // shutdown stuff
             dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+            long endGamePauseMillis = env.currentConfig().endGamePauseMillies;
+            if (!xButtonPressed && endGamePauseMillis > 0) Thread.sleep(endGamePauseMillis);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (configWatcher != null) configWatcher.close();
+            if (checkpoints != null) {
+                // a game that ended is not resumed, a game that was closed is
+                if (dealer.isSuspended()) checkpoints.close();
+                else checkpoints.delete();
+            }
             if (!xButtonPressed) env.ui.dispose();
+            env.stats.close();
+            logger.info("metrics: " + metrics.snapshot());
+            metrics.close();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
@@ -0,0 +1,195 @@
+package bguspl.set;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * A registry of named runtime metrics: counters (striped, so hot paths updating them from many threads do not
+ * contend), latency histograms and gauges (sampled when read). Metrics are created on first use and are meant to be
+ * looked up once and kept in a field. The whole registry can be read as a snapshot, dumped to the log periodically and
+ * exposed as a JMX MBean.
+ */
+public class Metrics {
+
+    /**
+     * The JMX name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "bguspl.set:type=Metrics";
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService dumper;
+    private ObjectName registeredName;
+
+    /**
+     * @param name - the counter name.
+     * @return - the counter with that name (created if needed).
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * @param name - the histogram name.
+     * @return - the latency histogram with that name (created if needed).
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers (or replaces) a gauge.
+     *
+     * @param name  - the gauge name.
+     * @param value - supplies the current value whenever the gauge is read.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Reads all the metrics. Histograms are reported as their count, mean, 50th, 90th and 99th percentiles and max
+     * (in microseconds).
+     *
+     * @return - the metric values, by name.
+     */
+    public SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.count());
+            snapshot.put(name + ".meanMicros", histogram.mean() / 1000);
+            snapshot.put(name + ".p50Micros", histogram.percentile(50) / 1000);
+            snapshot.put(name + ".p90Micros", histogram.percentile(90) / 1000);
+            snapshot.put(name + ".p99Micros", histogram.percentile(99) / 1000);
+            snapshot.put(name + ".maxMicros", histogram.max() / 1000);
+        });
+        return snapshot;
+    }
+
+    /**
+     * Logs a snapshot of the metrics periodically, on a daemon thread.
+     *
+     * @param logger       - the logger to dump to.
+     * @param periodMillis - the time between dumps (in milliseconds).
+     */
+    public synchronized void startDump(Logger logger, long periodMillis) {
+        if (dumper != null || periodMillis <= 0) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> logger.info("metrics: " + snapshot()),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, as read-only attributes and a reset operation.
+     *
+     * @throws JMException - if the registration fails (e.g. metrics are already registered).
+     */
+    public synchronized void registerMBean() throws JMException {
+        if (registeredName != null) return;
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+        registeredName = name;
+    }
+
+    /**
+     * Clears all the counters and histograms (gauges are not affected).
+     */
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Stops the periodic dump and unregisters the MBean.
+     */
+    public synchronized void close() {
+        if (dumper != null) dumper.shutdownNow();
+        dumper = null;
+        if (registeredName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(registeredName);
+            } catch (JMException ignored) {}
+            registeredName = null;
+        }
+    }
+
+    /**
+     * Exposes the snapshot as MBean attributes. The attributes are listed again whenever the MBean info is requested,
+     * since metrics can be added at any time.
+     */
+    private class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = snapshot().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("metrics are read only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            SortedMap<String, Long> snapshot = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes)
+                if (snapshot.containsKey(attribute)) list.add(new Attribute(attribute, snapshot.get(attribute)));
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            if ("reset".equals(actionName)) reset();
+            return null;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : snapshot().keySet())
+                attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            MBeanOperationInfo reset = new MBeanOperationInfo("reset", "clears counters and histograms",
+                    null, "void", MBeanOperationInfo.ACTION);
+            return new MBeanInfo(Metrics.class.getName(), "Set game runtime metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+        }
+    }
+}
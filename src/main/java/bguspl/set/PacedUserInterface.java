@@ -0,0 +1,207 @@
+package bguspl.set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the changes shown by a user interface, so that cards appear and disappear one after the other the way a
+ * dealer would deal them, while the game itself changes the table instantly. Every event is queued to a pacing
+ * thread of its own, which shows them one at a time in the order they were made: card changes after their delay, all
+ * the other events (tokens, freezes, timers, scores) as soon as the changes before them were shown. A token is thus
+ * never shown on a card that is not drawn yet, nor wiped by a card change that was made before it, and the user
+ * interface is only ever touched by the pacing thread.
+ */
+public class PacedUserInterface implements UserInterface {
+
+    /**
+     * The maximum time to wait for the pacing thread to stop when disposing.
+     */
+    private static final long DISPOSE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Decides how long to wait before showing each change.
+     */
+    public interface Policy {
+        /**
+         * @return - the time (in milliseconds) to wait before showing a card being placed.
+         */
+        long placeCardMillis(int card, int slot);
+
+        /**
+         * @return - the time (in milliseconds) to wait before showing a card being removed.
+         */
+        long removeCardMillis(int slot);
+
+        /**
+         * @param millis - the time to wait before showing any card change.
+         * @return - a policy that waits the same time for every card change.
+         */
+        static Policy fixed(long millis) {
+            return of(() -> millis);
+        }
+
+        /**
+         * @param millis - supplies the time to wait before showing any card change (asked before every change).
+         * @return - a policy that waits the same time for every card change.
+         */
+        static Policy of(LongSupplier millis) {
+            return new Policy() {
+                @Override
+                public long placeCardMillis(int card, int slot) {
+                    return millis.getAsLong();
+                }
+
+                @Override
+                public long removeCardMillis(int slot) {
+                    return millis.getAsLong();
+                }
+            };
+        }
+    }
+
+    private final UserInterface ui;
+    private final Policy policy;
+
+    /**
+     * The changes waiting to be shown (the queue is not bounded: the user interface queue in front of this one is).
+     */
+    private final BlockingQueue<Runnable> changes = new LinkedBlockingQueue<>();
+    private final Thread pacer;
+
+    /**
+     * @param ui     - the user interface to pace.
+     * @param policy - how long to wait before each change.
+     */
+    public PacedUserInterface(UserInterface ui, Policy policy) {
+        this.ui = ui;
+        this.policy = policy;
+        pacer = new Thread(this::showChanges, "paced-ui");
+        pacer.setDaemon(true);
+        pacer.start();
+    }
+
+    private void showChanges() {
+        try {
+            while (!Thread.currentThread().isInterrupted())
+                changes.take().run();
+        } catch (InterruptedException ignored) {} // disposed
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    /**
+     * A change, shown by the pacing thread (after its delay, if any).
+     */
+    private interface Change {
+        void show() throws InterruptedException;
+    }
+
+    private void queue(Change change) {
+        changes.add(() -> {
+            try {
+                change.show();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // let the pacing thread see it is being stopped
+            }
+        });
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        queue(() -> {
+            pause(policy.placeCardMillis(card, slot));
+            ui.placeCard(card, slot);
+        });
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        queue(() -> {
+            pause(policy.removeCardMillis(slot));
+            ui.removeCard(slot);
+        });
+    }
+
+    /**
+     * Waits once for the whole batch (the longest removal delay of its slots, then the longest placement delay of its
+     * cards), instead of once per card.
+     */
+    @Override
+    public void replaceCards(int[] slots, int[] cards) {
+        int[] slotsCopy = slots.clone(), cardsCopy = cards.clone(); // the caller may reuse the arrays
+        queue(() -> {
+            long removeMillis = 0, placeMillis = 0;
+            for (int i = 0; i < slotsCopy.length; ++i) {
+                removeMillis = Math.max(removeMillis, policy.removeCardMillis(slotsCopy[i]));
+                if (cardsCopy[i] >= 0)
+                    placeMillis = Math.max(placeMillis, policy.placeCardMillis(cardsCopy[i], slotsCopy[i]));
+            }
+            pause(removeMillis);
+            pause(placeMillis);
+            ui.replaceCards(slotsCopy, cardsCopy);
+        });
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        queue(() -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        queue(() -> ui.removeTokens());
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        queue(() -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        queue(() -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        queue(() -> ui.setCountdown(millies, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        queue(() -> ui.setElapsed(millies));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        queue(() -> ui.setFreeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        queue(() -> ui.setScore(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        int[] playersCopy = players.clone();
+        queue(() -> ui.announceWinner(playersCopy));
+    }
+
+    /**
+     * Stops the pacing thread (changes not shown yet are dropped) and disposes of the user interface.
+     */
+    @Override
+    public void dispose() {
+        pacer.interrupt();
+        try {
+            pacer.join(DISPOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ui.dispose();
+    }
+}
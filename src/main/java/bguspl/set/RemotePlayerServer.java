@@ -0,0 +1,90 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Lets human players play over the network. All connections are multiplexed on the single selector thread of the
+ * spectator server, and every connection receives the same state stream as a spectator (see {@link SpectatorServer}).
+ * <p>
+ * Requests (one per line):
+ * <pre>
+ * join PLAYER                 - take control of a human player (answered with "joined PLAYER")
+ * key SLOT                    - the equivalent of the player pressing the key of the slot
+ * </pre>
+ * Invalid requests are answered with "error REASON".
+ */
+public class RemotePlayerServer extends SpectatorServer {
+
+    private final Player[] players;
+
+    /**
+     * True iff the player is controlled by a connection. Only accessed from the server thread.
+     */
+    private final boolean[] joined;
+
+    /**
+     * @param logger  - the logger.
+     * @param config  - the game configuration.
+     * @param players - the players (the array may be filled after the server is created).
+     * @param port    - the TCP port to listen on (0 for any free port), on the configured bind address.
+     * @throws IOException - if the bind address is unknown or the port cannot be bound.
+     */
+    public RemotePlayerServer(Logger logger, Config config, Player[] players, int port) throws IOException {
+        super(logger, config, port);
+        this.players = players;
+        this.joined = new boolean[config.players];
+    }
+
+    @Override
+    protected void onLine(Client client, String line) {
+        String[] words = line.split("\\s+");
+        int argument;
+        try {
+            argument = words.length == 2 ? Integer.parseInt(words[1]) : -1;
+        } catch (NumberFormatException e) {
+            argument = -1;
+        }
+
+        if (words[0].equals("join")) join(client, argument);
+        else if (words[0].equals("key")) key(client, argument);
+        else send(client, "error unknown request");
+    }
+
+    private void join(Client client, int player) {
+        if (client.attachment != null)
+            send(client, "error already joined");
+        else if (player < 0 || player >= config.humanPlayers)
+            send(client, "error no such human player");
+        else if (joined[player])
+            send(client, "error player taken");
+        else {
+            joined[player] = true;
+            client.attachment = player;
+            logger.info("remote client joined as player " + (player + 1));
+            send(client, "joined " + player);
+        }
+    }
+
+    private void key(Client client, int slot) {
+        if (client.attachment == null)
+            send(client, "error not joined");
+        else if (slot < 0 || slot >= config.tableSize)
+            send(client, "error no such slot");
+        else {
+            Player player = players[(Integer) client.attachment];
+            if (player != null) player.keyPressed(slot);
+        }
+    }
+
+    @Override
+    protected void onClose(Client client) {
+        if (client.attachment != null) {
+            int player = (Integer) client.attachment;
+            joined[player] = false;
+            logger.info("remote player " + (player + 1) + " disconnected");
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Streams the game state to any number of spectators over plain TCP, using a single NIO selector thread.
+ * This is a user interface sink: the callbacks only record a text delta, and once per tick the delta is encoded a
+ * single time and the same read-only buffer is queued to every connected client. A client that connects receives a
+ * snapshot of the full state first. Clients that cannot keep up are disconnected.
+ * <p>
+ * Protocol (one event per line):
+ * <pre>
+ * reset                       - a snapshot follows
+ * card SLOT CARD              - a card was placed
+ * empty SLOT                  - a card was removed
+ * token PLAYER SLOT           - a token was placed
+ * untoken PLAYER SLOT         - a token was removed
+ * clear [SLOT]                - all tokens were removed (from a slot)
+ * countdown MILLIS WARN       - the turn countdown
+ * elapsed MILLIS              - the time since the last action
+ * freeze PLAYER MILLIS        - a player's freeze time
+ * score PLAYER SCORE          - a player's score
+ * winner PLAYER...            - the game is over
+ * </pre>
+ */
+public class SpectatorServer implements UserInterface, Runnable {
+
+    /**
+     * The maximum number of bytes queued to a single client before it is considered too slow and disconnected.
+     */
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    protected final Logger logger;
+    protected final Config config;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Client> joining = new ArrayList<>();
+
+    // the state mirror and pending delta, guarded by this
+    private final int[] slotToCard;
+    private final boolean[][] tokens;
+    private final int[] scores;
+    private final long[] freezes;
+    private long countdown;
+    private boolean warn;
+    private boolean countdownDirty;
+    private long elapsed = -1;
+    private boolean elapsedDirty;
+    private int[] winners;
+    private final StringBuilder delta = new StringBuilder();
+
+    /**
+     * @param logger - the logger.
+     * @param config - the game configuration.
+     * @param port   - the TCP port to listen on (0 for any free port), on the configured bind address (the loopback
+     *               address if none is configured).
+     * @throws IOException - if the bind address is unknown or the port cannot be bound.
+     */
+    public SpectatorServer(Logger logger, Config config, int port) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        slotToCard = new int[config.tableSize];
+        Arrays.fill(slotToCard, -1);
+        tokens = new boolean[config.players][config.tableSize];
+        scores = new int[config.players];
+        freezes = new long[config.players];
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(bindAddress(config), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, getClass().getSimpleName());
+        thread.setDaemon(true);
+    }
+
+    private static InetAddress bindAddress(Config config) throws IOException {
+        if (config.networkBindAddress.isEmpty()) return InetAddress.getLoopbackAddress();
+        return InetAddress.getByName(config.networkBindAddress);
+    }
+
+    /**
+     * Starts the server thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * @return - the TCP port the server listens on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the local address the server listens on.
+     */
+    public InetAddress getAddress() {
+        return server.socket().getInetAddress();
+    }
+
+    /**
+     * A connected client.
+     */
+    protected static final class Client {
+        private final SocketChannel channel;
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        private final ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private int pendingBytes;
+
+        /**
+         * Subclass specific data associated with the connection.
+         */
+        protected Object attachment;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    @Override
+    public void run() {
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        long nextTick = System.currentTimeMillis();
+        try {
+            while (!closed) {
+                selector.select(Math.max(1, nextTick - System.currentTimeMillis()));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) read(client);
+                        if (key.isValid() && key.isWritable()) flush(client);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextTick) {
+                    tick();
+                    nextTick = now + config.spectatorTickMillis;
+                }
+            }
+            tick(); // the last events (e.g. the winners announcement)
+        } catch (IOException e) {
+            if (!closed) logger.severe("spectator server failed: " + e);
+        } finally {
+            for (Client client : clients) closeQuietly(client);
+            for (Client client : joining) closeQuietly(client);
+            try {
+                selector.close();
+                server.close();
+            } catch (IOException ignored) {}
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            Client client = new Client(channel);
+            channel.register(selector, SelectionKey.OP_READ, client);
+            joining.add(client);
+        }
+    }
+
+    /**
+     * Sends the pending delta to the connected clients and a snapshot to the clients that just joined.
+     */
+    private void tick() {
+        ByteBuffer shared = null;
+        List<ByteBuffer> snapshots = new ArrayList<>(joining.size());
+        synchronized (this) {
+            if (countdownDirty) delta.append("countdown ").append(countdown).append(' ').append(warn).append('\n');
+            if (elapsedDirty) delta.append("elapsed ").append(elapsed).append('\n');
+            countdownDirty = elapsedDirty = false;
+            if (delta.length() > 0 && !clients.isEmpty())
+                shared = encode(delta).asReadOnlyBuffer();
+            delta.setLength(0);
+            if (!joining.isEmpty()) {
+                ByteBuffer snapshot = encode(snapshot()).asReadOnlyBuffer();
+                for (int i = 0; i < joining.size(); ++i)
+                    snapshots.add(snapshot.duplicate());
+            }
+        }
+        if (shared != null)
+            for (Client client : new ArrayList<>(clients))
+                send(client, shared.duplicate());
+        // a failed send removes the client from both lists, so walk a copy
+        List<Client> joined = new ArrayList<>(joining);
+        joining.clear();
+        clients.addAll(joined);
+        for (int i = 0; i < joined.size(); ++i)
+            send(joined.get(i), snapshots.get(i));
+    }
+
+    private static ByteBuffer encode(CharSequence text) {
+        return ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private StringBuilder snapshot() {
+        StringBuilder sb = new StringBuilder("reset\n");
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            if (slotToCard[slot] >= 0) sb.append("card ").append(slot).append(' ').append(slotToCard[slot]).append('\n');
+        for (int player = 0; player < tokens.length; ++player) {
+            for (int slot = 0; slot < tokens[player].length; ++slot)
+                if (tokens[player][slot]) sb.append("token ").append(player).append(' ').append(slot).append('\n');
+            sb.append("score ").append(player).append(' ').append(scores[player]).append('\n');
+            if (freezes[player] > 0) sb.append("freeze ").append(player).append(' ').append(freezes[player]).append('\n');
+        }
+        if (elapsed >= 0) sb.append("elapsed ").append(elapsed).append('\n');
+        else sb.append("countdown ").append(countdown).append(' ').append(warn).append('\n');
+        if (winners != null) appendWinners(sb);
+        return sb;
+    }
+
+    private void appendWinners(StringBuilder sb) {
+        sb.append("winner");
+        for (int player : winners) sb.append(' ').append(player);
+        sb.append('\n');
+    }
+
+    /**
+     * Queues a buffer to a client and writes as much of it as possible. Must be called from the server thread.
+     */
+    private void send(Client client, ByteBuffer buffer) {
+        client.pendingBytes += buffer.remaining();
+        client.output.add(buffer);
+        if (client.pendingBytes > MAX_PENDING_BYTES) {
+            logger.warning("disconnecting slow client " + client.channel);
+            close(client);
+            return;
+        }
+        flush(client);
+    }
+
+    /**
+     * Sends a single line to one client. Must be called from the server thread (e.g. from {@link #onLine}).
+     *
+     * @param client - the client.
+     * @param line   - the text to send (without the line terminator).
+     */
+    protected void send(Client client, String line) {
+        send(client, encode(line + "\n"));
+    }
+
+    private void flush(Client client) {
+        try {
+            while (!client.output.isEmpty()) {
+                ByteBuffer buffer = client.output.peek();
+                client.pendingBytes -= client.channel.write(buffer);
+                if (buffer.hasRemaining()) break;
+                client.output.poll();
+            }
+            SelectionKey key = client.channel.keyFor(selector);
+            if (key != null && key.isValid())
+                key.interestOps(client.output.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close(client);
+        }
+    }
+
+    private void read(Client client) {
+        try {
+            if (client.channel.read(client.input) < 0) {
+                close(client);
+                return;
+            }
+        } catch (IOException e) {
+            close(client);
+            return;
+        }
+        ByteBuffer input = client.input;
+        input.flip();
+        int start = 0;
+        for (int i = 0; i < input.limit(); ++i) {
+            if (input.get(i) == '\n') {
+                String line = new String(input.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+                if (!line.isEmpty()) onLine(client, line);
+                start = i + 1;
+            }
+        }
+        input.position(start);
+        input.compact();
+        if (!input.hasRemaining()) {
+            logger.warning("disconnecting client sending overlong lines " + client.channel);
+            close(client);
+        }
+    }
+
+    /**
+     * Handles a line received from a client. Spectators are not expected to send anything, so this does nothing.
+     * Called from the server thread.
+     *
+     * @param client - the client the line came from.
+     * @param line   - the line (trimmed, without the line terminator).
+     */
+    protected void onLine(Client client, String line) {}
+
+    /**
+     * Called from the server thread after a client disconnects.
+     *
+     * @param client - the client.
+     */
+    protected void onClose(Client client) {}
+
+    private void close(Client client) {
+        if (!client.channel.isOpen()) return;
+        closeQuietly(client);
+        clients.remove(client);
+        joining.remove(client);
+        onClose(client);
+    }
+
+    private static void closeQuietly(Client client) {
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        slotToCard[slot] = card;
+        delta.append("card ").append(slot).append(' ').append(card).append('\n');
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        slotToCard[slot] = -1;
+        delta.append("empty ").append(slot).append('\n');
+    }
+
+    /**
+     * Applies the whole batch under the lock, so spectators get it in a single tick.
+     */
+    @Override
+    public synchronized void replaceCards(int[] slots, int[] cards) {
+        UserInterface.super.replaceCards(slots, cards);
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        tokens[player][slot] = true;
+        delta.append("token ").append(player).append(' ').append(slot).append('\n');
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        for (boolean[] playerTokens : tokens) Arrays.fill(playerTokens, false);
+        delta.append("clear\n");
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        for (boolean[] playerTokens : tokens) playerTokens[slot] = false;
+        delta.append("clear ").append(slot).append('\n');
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        tokens[player][slot] = false;
+        delta.append("untoken ").append(player).append(' ').append(slot).append('\n');
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        countdown = millies;
+        this.warn = warn;
+        elapsed = -1;
+        countdownDirty = true;
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        elapsed = millies;
+        elapsedDirty = true;
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        freezes[player] = millies;
+        delta.append("freeze ").append(player).append(' ').append(millies).append('\n');
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        scores[player] = score;
+        delta.append("score ").append(player).append(' ').append(score).append('\n');
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        winners = players.clone();
+        appendWinners(delta);
+    }
+
+    /**
+     * Stops the server thread and disconnects all clients.
+     */
+    @Override
+    public void dispose() {
+        closed = true;
+        if (!thread.isAlive()) {
+            try {
+                selector.close();
+                server.close();
+            } catch (IOException ignored) {}
+            return;
+        }
+        selector.wakeup();
+        try {
+            thread.join(config.spectatorTickMillis + 1000);
+        } catch (InterruptedException ignored) {}
+    }
+}
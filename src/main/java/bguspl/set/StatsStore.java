@@ -0,0 +1,374 @@
+package bguspl.set;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the results of every player in every game in an append-only file, one tab separated line per player per game,
+ * and the totals of every player (by name) in memory for fast queries. Results are queued by the game threads without
+ * blocking and written in batches by a background thread (write-behind), so a slow disk never holds up the game; the
+ * totals are updated once a result is written. The file is read once when the store is opened to rebuild the totals.
+ */
+public class StatsStore implements AutoCloseable {
+
+    /**
+     * The header of a new file (lines starting with # are skipped when reading).
+     */
+    private static final String HEADER = "# gameStartMillis\tgameMillis\tplayer\tname\tscore\tsets\tpenalties"
+            + "\treactions\treactionTotalMicros\treactionMaxMicros\twon\n";
+
+    /**
+     * The maximum number of results waiting to be written (more are dropped, see droppedResults).
+     */
+    private static final int QUEUE_CAPACITY = 1 << 16;
+
+    /**
+     * The maximum number of results written at once.
+     */
+    private static final int MAX_BATCH = 1024;
+
+    /**
+     * The results of a single player in a single game.
+     */
+    public static final class PlayerResult {
+        public final long gameStartMillis;
+        public final long gameMillis;
+        public final int player;
+        public final String name;
+        public final int score;
+        public final int sets;
+        public final int penalties;
+        public final int reactions;
+        public final long reactionTotalMicros;
+        public final long reactionMaxMicros;
+        public final boolean won;
+
+        /**
+         * @param gameStartMillis     - when the game started (epoch milliseconds, identifies the game).
+         * @param gameMillis          - how long the game took.
+         * @param player              - the player id.
+         * @param name                - the player's name (the totals are kept by name).
+         * @param score               - the player's final score.
+         * @param sets                - the number of legal sets the player claimed.
+         * @param penalties           - the number of illegal sets the player claimed.
+         * @param reactions           - the number of reaction times measured.
+         * @param reactionTotalMicros - the sum of the reaction times (the time from the table changing to a claim).
+         * @param reactionMaxMicros   - the longest reaction time.
+         * @param won                 - true iff the player is one of the winners.
+         */
+        public PlayerResult(long gameStartMillis, long gameMillis, int player, String name, int score, int sets,
+                            int penalties, int reactions, long reactionTotalMicros, long reactionMaxMicros,
+                            boolean won) {
+            this.gameStartMillis = gameStartMillis;
+            this.gameMillis = gameMillis;
+            this.player = player;
+            this.name = name.replaceAll("[\\t\\r\\n]", " ");
+            this.score = score;
+            this.sets = sets;
+            this.penalties = penalties;
+            this.reactions = reactions;
+            this.reactionTotalMicros = reactionTotalMicros;
+            this.reactionMaxMicros = reactionMaxMicros;
+            this.won = won;
+        }
+
+        private void appendTo(StringBuilder sb) {
+            sb.append(gameStartMillis).append('\t').append(gameMillis).append('\t').append(player).append('\t')
+                    .append(name).append('\t').append(score).append('\t').append(sets).append('\t')
+                    .append(penalties).append('\t').append(reactions).append('\t').append(reactionTotalMicros)
+                    .append('\t').append(reactionMaxMicros).append('\t').append(won).append('\n');
+        }
+
+        /**
+         * @return - the result written on the line, or null if the line is not a valid result (e.g. cut short).
+         */
+        private static PlayerResult parse(String line) {
+            String[] fields = line.split("\t");
+            if (fields.length != 11) return null;
+            try {
+                return new PlayerResult(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Integer.parseInt(fields[2]), fields[3], Integer.parseInt(fields[4]),
+                        Integer.parseInt(fields[5]), Integer.parseInt(fields[6]), Integer.parseInt(fields[7]),
+                        Long.parseLong(fields[8]), Long.parseLong(fields[9]), Boolean.parseBoolean(fields[10]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The totals of a player over all the games in the store.
+     */
+    public static final class Summary {
+        public final String name;
+        public final int games;
+        public final int wins;
+        public final long score;
+        public final long sets;
+        public final long penalties;
+        public final long reactions;
+        public final long reactionTotalMicros;
+        public final long reactionMaxMicros;
+
+        private Summary(String name, int games, int wins, long score, long sets, long penalties, long reactions,
+                        long reactionTotalMicros, long reactionMaxMicros) {
+            this.name = name;
+            this.games = games;
+            this.wins = wins;
+            this.score = score;
+            this.sets = sets;
+            this.penalties = penalties;
+            this.reactions = reactions;
+            this.reactionTotalMicros = reactionTotalMicros;
+            this.reactionMaxMicros = reactionMaxMicros;
+        }
+
+        /**
+         * @return - the mean reaction time in microseconds (0 if none was measured).
+         */
+        public long meanReactionMicros() {
+            return reactions == 0 ? 0 : reactionTotalMicros / reactions;
+        }
+
+        private Summary plus(PlayerResult result) {
+            return new Summary(name, games + 1, wins + (result.won ? 1 : 0), score + result.score,
+                    sets + result.sets, penalties + result.penalties, reactions + result.reactions,
+                    reactionTotalMicros + result.reactionTotalMicros,
+                    Math.max(reactionMaxMicros, result.reactionMaxMicros));
+        }
+
+        @Override
+        public String toString() {
+            return name + ": games=" + games + " wins=" + wins + " score=" + score + " sets=" + sets
+                    + " penalties=" + penalties + " meanReactionMicros=" + meanReactionMicros();
+        }
+    }
+
+    private final Logger logger;
+    private final FileChannel channel;
+    private final BlockingQueue<PlayerResult> queue;
+    private final Thread writer;
+
+    /**
+     * The totals of every player, by name (replaced as a whole on every update, so reads never lock).
+     */
+    private final Map<String, Summary> summaries = new ConcurrentHashMap<>();
+
+    /**
+     * The number of results queued and the number handled (written, or failed to be written) so far.
+     */
+    private final AtomicLong queued = new AtomicLong();
+    private long handled;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * The marker that stops the writer.
+     */
+    private static final PlayerResult END = new PlayerResult(0, 0, -1, "", 0, 0, 0, 0, 0, 0, false);
+
+    /**
+     * A store that records nothing.
+     */
+    private StatsStore() {
+        this.logger = null;
+        this.channel = null;
+        this.queue = null;
+        this.writer = null;
+        this.closed = true;
+    }
+
+    /**
+     * Opens the store (creating the file and its directory if needed) and starts the writer thread.
+     *
+     * @param logger - the logger.
+     * @param file   - the file the results are appended to.
+     * @throws IOException - if the file cannot be read or opened for writing.
+     */
+    public StatsStore(Logger logger, Path file) throws IOException {
+        this.logger = logger;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        if (Files.exists(file)) load(file);
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (channel.size() == 0) write(HEADER);
+        else if (!endsWithNewline(file)) write("\n"); // a line cut short by a crash stays on its own
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        writer = new Thread(this::writeLoop, "stats-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return - a store that records nothing (for games without a statistics file).
+     */
+    public static StatsStore disabled() {
+        return new StatsStore();
+    }
+
+    private void load(Path file) throws IOException {
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                PlayerResult result = PlayerResult.parse(line);
+                if (result == null) ++skipped;
+                else add(result);
+            }
+        }
+        if (skipped > 0) logger.severe("skipped " + skipped + " invalid lines in player statistics file " + file);
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        try (FileChannel read = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            read.read(last, read.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void write(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private void add(PlayerResult result) {
+        summaries.merge(result.name, new Summary(result.name, 0, 0, 0, 0, 0, 0, 0, 0).plus(result),
+                (summary, single) -> summary.plus(result));
+    }
+
+    /**
+     * Queues a result to be written. Never blocks: if the writer is too far behind, the result is dropped (and
+     * counted).
+     *
+     * @param result - the result.
+     */
+    public void record(PlayerResult result) {
+        boolean offered;
+        synchronized (this) { // never offered after close queued the end marker, so never lost
+            if (closed) return;
+            offered = queue.offer(result);
+            if (offered) queued.incrementAndGet();
+        }
+        if (!offered && dropped.getAndIncrement() == 0)
+            logger.severe("player statistics writer is behind, dropping results");
+    }
+
+    private void writeLoop() {
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        List<PlayerResult> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder sb = new StringBuilder();
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            end = batch.remove(END);
+
+            sb.setLength(0);
+            for (PlayerResult result : batch) result.appendTo(sb);
+            try {
+                write(sb.toString());
+                for (PlayerResult result : batch) add(result);
+            } catch (IOException e) {
+                logger.severe("error writing player statistics: " + e.getMessage());
+            }
+            synchronized (this) {
+                handled += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+        ThreadLogger.logStop(logger, Thread.currentThread().getName());
+    }
+
+    /**
+     * Waits until the results queued so far are written (or the time is up).
+     *
+     * @param timeoutMillis - the maximum time to wait.
+     * @return - true iff all the results queued before the call were written.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long target = queued.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (this) {
+            while (handled < target) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) return false;
+                wait(left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name - the player's name.
+     * @return - the player's totals (null if the player has no results).
+     */
+    public Summary summary(String name) {
+        return summaries.get(name);
+    }
+
+    /**
+     * @return - the totals of all the players, most sets first.
+     */
+    public List<Summary> summaries() {
+        return summaries.values().stream()
+                .sorted(Comparator.<Summary>comparingLong(summary -> -summary.sets)
+                        .thenComparing(summary -> summary.name))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return - the number of results dropped because the writer was too far behind.
+     */
+    public long droppedResults() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the queued results and closes the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        try {
+            queue.put(END);
+            writer.join();
+            channel.force(false);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.severe("error closing player statistics file: " + e.getMessage());
+        }
+    }
+}
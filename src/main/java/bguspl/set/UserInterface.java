@@ -18,6 +18,20 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Replace the cards in several slots at once (e.g. the cards of a set that was found). The tokens that were on the
+     * old cards are removed before, one by one, so any token on the slots belongs to the new cards and is kept.
+     * The default implementation shows the change slot by slot.
+     * @param slots - the slot numbers.
+     * @param cards - the card id to draw in each slot (-1 for an empty card image).
+     */
+    default void replaceCards(int[] slots, int[] cards) {
+        for (int i = 0; i < slots.length; ++i) {
+            removeCard(slots[i]);
+            if (cards[i] >= 0) placeCard(cards[i], slots[i]);
+        }
+    }
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
@@ -33,6 +33,13 @@ public class UserInterfaceDecorator implements UserInterface {
         if (ui != null) ui.removeCard(slot);
     }
 
+    @Override
+    public void replaceCards(int[] slots, int[] cards) {
+        logger.severe("replacing cards in slots " + Arrays.toString(slots) + " with " + Arrays.toString(cards));
+        util.spin();
+        if (ui != null) ui.replaceCards(slots, cards);
+    }
+
     @Override
     public void placeToken(int player, int slot) {
         logger.severe("player " + (player + 1) + " placing token on slot " + slot);
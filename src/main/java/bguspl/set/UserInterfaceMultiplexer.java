@@ -0,0 +1,378 @@
+package bguspl.set;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A user interface that fans every event out to any number of registered sinks (e.g. the Swing window, a journal,
+ * metrics or network spectators).
+ * Each sink is fed by its own bounded queue and dispatcher thread, so the game threads only ever enqueue and a sink
+ * that is slow for a while does not stall them. Countdown, elapsed time and freeze updates are coalesced (a sink that
+ * falls behind only gets the latest value); what happens to other events when a sink's queue is full depends on the
+ * sink's overflow policy. A sink that shows the table (e.g. the window) is resynchronized: its queued events are
+ * discarded and it is shown the current state of the game instead, which the multiplexer keeps from the events it
+ * fans out. Posting never waits, so the game threads (which post while holding the table lock) never wait for a sink.
+ */
+public class UserInterfaceMultiplexer implements UserInterface {
+
+    /**
+     * What to do with an event when a sink's queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the event being posted. */
+        DROP_NEWEST,
+        /** Discard the oldest queued event to make room for the new one. */
+        DROP_OLDEST,
+        /** Discard the queued events and show the sink the current state of the game instead. */
+        RESYNC
+    }
+
+    /**
+     * The maximum time to wait for a sink to drain its queue when disposing.
+     */
+    private static final long DISPOSE_TIMEOUT_MILLIS = 1000;
+
+    private static final Object COUNTDOWN_KEY = "countdown";
+    private static final Object ELAPSED_KEY = "elapsed";
+
+    private final Logger logger;
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private final State state = new State(); // guarded by this
+
+    public UserInterfaceMultiplexer(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Registers a sink and starts its dispatcher thread.
+     *
+     * @param name     - the sink name (used for the thread name and in the logs).
+     * @param ui       - the sink.
+     * @param capacity - the maximum number of queued events.
+     * @param policy   - what to do with events that do not fit in the queue.
+     */
+    public void addSink(String name, UserInterface ui, int capacity, OverflowPolicy policy) {
+        addSink(name, () -> ui, capacity, policy);
+    }
+
+    /**
+     * Registers a sink that is created on its own dispatcher thread, so that a slow to build user interface (e.g. a
+     * window loading its images) does not hold up the game. Events posted meanwhile are buffered in the sink's queue
+     * and delivered once it is created. If creating it fails, the sink is dropped.
+     *
+     * @param name     - the sink name (used for the thread name and in the logs).
+     * @param factory  - creates the sink (called on the sink's dispatcher thread).
+     * @param capacity - the maximum number of queued events.
+     * @param policy   - what to do with events that do not fit in the queue.
+     */
+    public void addSink(String name, Supplier<UserInterface> factory, int capacity, OverflowPolicy policy) {
+        Sink sink = new Sink(name, factory, capacity, policy);
+        sinks.add(sink);
+        sink.thread.start();
+    }
+
+    /**
+     * @return - the total number of events waiting in the queues of all sinks.
+     */
+    public int pendingEvents() {
+        int pending = 0;
+        for (Sink sink : sinks) pending += sink.queue.size();
+        return pending;
+    }
+
+    /**
+     * @return - the total number of events dropped by all sinks so far.
+     */
+    public long droppedEvents() {
+        long dropped = 0;
+        for (Sink sink : sinks) dropped += sink.dropped.get();
+        return dropped;
+    }
+
+    private void post(Consumer<UserInterface> event) {
+        for (Sink sink : sinks) sink.post(event);
+    }
+
+    private void postCoalesced(Object key, Consumer<UserInterface> event) {
+        state.coalesced.put(key, event);
+        for (Sink sink : sinks) sink.postCoalesced(key, event);
+    }
+
+    @Override
+    public synchronized void placeCard(int card, int slot) {
+        state.cards.put(slot, card);
+        post(ui -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public synchronized void removeCard(int slot) {
+        state.cards.put(slot, -1);
+        post(ui -> ui.removeCard(slot));
+    }
+
+    @Override
+    public synchronized void replaceCards(int[] slots, int[] cards) {
+        int[] slotsCopy = slots.clone(), cardsCopy = cards.clone(); // the caller may reuse the arrays
+        for (int i = 0; i < slots.length; ++i) state.cards.put(slots[i], cards[i]);
+        post(ui -> ui.replaceCards(slotsCopy, cardsCopy));
+    }
+
+    @Override
+    public synchronized void placeToken(int player, int slot) {
+        state.tokens.computeIfAbsent(slot, s -> new TreeSet<>()).add(player);
+        post(ui -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public synchronized void removeTokens() {
+        state.tokens.clear();
+        post(UserInterface::removeTokens);
+    }
+
+    @Override
+    public synchronized void removeTokens(int slot) {
+        state.tokens.remove(slot);
+        post(ui -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public synchronized void removeToken(int player, int slot) {
+        Set<Integer> players = state.tokens.get(slot);
+        if (players != null) players.remove(player);
+        post(ui -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        postCoalesced(COUNTDOWN_KEY, ui -> ui.setCountdown(millies, warn));
+    }
+
+    @Override
+    public synchronized void setElapsed(long millies) {
+        postCoalesced(ELAPSED_KEY, ui -> ui.setElapsed(millies));
+    }
+
+    @Override
+    public synchronized void setFreeze(int player, long millies) {
+        postCoalesced(new FreezeKey(player), ui -> ui.setFreeze(player, millies));
+    }
+
+    @Override
+    public synchronized void setScore(int player, int score) {
+        state.scores.put(player, score);
+        post(ui -> ui.setScore(player, score));
+    }
+
+    @Override
+    public synchronized void announceWinner(int[] players) {
+        state.winners = players.clone();
+        post(ui -> ui.announceWinner(players));
+    }
+
+    /**
+     * Delivers the dispose event to every sink and waits (for a bounded time) for the sinks to drain.
+     */
+    @Override
+    public void dispose() {
+        synchronized (this) {
+            for (Sink sink : sinks) sink.close();
+        }
+        for (Sink sink : sinks) {
+            try {
+                sink.thread.join(DISPOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException ignored) {}
+        }
+        sinks.clear();
+    }
+
+    /**
+     * The coalescing key of a player's freeze updates.
+     */
+    private static final class FreezeKey {
+        private final int player;
+
+        private FreezeKey(int player) {
+            this.player = player;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FreezeKey && ((FreezeKey) o).player == player;
+        }
+
+        @Override
+        public int hashCode() {
+            return player;
+        }
+    }
+
+    /**
+     * The state of the game as told to the sinks so far, shown to a sink instead of the events it missed.
+     */
+    private static final class State {
+        private final Map<Integer, Integer> cards = new TreeMap<>(); // slot -> card (-1 for an empty slot)
+        private final Map<Integer, Set<Integer>> tokens = new TreeMap<>(); // slot -> players
+        private final Map<Integer, Integer> scores = new TreeMap<>(); // player -> score
+        private final Map<Object, Consumer<UserInterface>> coalesced = new LinkedHashMap<>(); // the latest updates
+        private int[] winners;
+
+        private State copy() {
+            State copy = new State();
+            copy.cards.putAll(cards);
+            tokens.forEach((slot, players) -> copy.tokens.put(slot, new TreeSet<>(players)));
+            copy.scores.putAll(scores);
+            copy.coalesced.putAll(coalesced);
+            copy.winners = winners;
+            return copy;
+        }
+
+        /**
+         * Shows the whole state: the tokens are removed first, then the cards replaced in a single batch, and the
+         * tokens, scores, freezes, timers and winners shown again.
+         */
+        private void showTo(UserInterface ui) {
+            ui.removeTokens();
+            int[] slots = new int[cards.size()], cardIds = new int[cards.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> card : cards.entrySet()) {
+                slots[i] = card.getKey();
+                cardIds[i++] = card.getValue();
+            }
+            if (slots.length > 0) ui.replaceCards(slots, cardIds);
+            tokens.forEach((slot, players) -> players.forEach(player -> ui.placeToken(player, slot)));
+            scores.forEach(ui::setScore);
+            coalesced.values().forEach(event -> event.accept(ui));
+            if (winners != null) ui.announceWinner(winners);
+        }
+    }
+
+    /**
+     * A queued placeholder for the latest coalesced event with the given key.
+     */
+    private static final class Marker implements Consumer<UserInterface> {
+        private final Object key;
+        private final Map<Object, Consumer<UserInterface>> latest;
+
+        private Marker(Object key, Map<Object, Consumer<UserInterface>> latest) {
+            this.key = key;
+            this.latest = latest;
+        }
+
+        @Override
+        public void accept(UserInterface ui) {
+            Consumer<UserInterface> event = latest.remove(key);
+            if (event != null) event.accept(ui);
+        }
+    }
+
+    private final class Sink implements Runnable {
+
+        private final String name;
+        private final Supplier<UserInterface> factory;
+        private UserInterface ui; // created and used by the dispatcher thread only
+        private final BlockingQueue<Consumer<UserInterface>> queue;
+        private final OverflowPolicy policy;
+        private final Map<Object, Consumer<UserInterface>> latest = new ConcurrentHashMap<>();
+        private final AtomicLong dropped = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean closed;
+
+        private Sink(String name, Supplier<UserInterface> factory, int capacity, OverflowPolicy policy) {
+            this.name = name;
+            this.factory = factory;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.policy = policy;
+            this.thread = new Thread(this, "ui-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        private boolean post(Consumer<UserInterface> event) {
+            if (closed) return false;
+            while (!queue.offer(event)) {
+                if (policy == OverflowPolicy.RESYNC) {
+                    resync();
+                    return false;
+                }
+                if (policy == OverflowPolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                Consumer<UserInterface> evicted = queue.poll();
+                if (evicted != null) {
+                    dropped.incrementAndGet();
+                    if (evicted instanceof Marker) latest.remove(((Marker) evicted).key);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Replaces everything queued (and the event being posted, already part of the state) with a single event
+         * showing the current state. Called with the multiplexer locked, so no event is posted meanwhile.
+         */
+        private void resync() {
+            dropped.addAndGet(queue.size() + 1);
+            queue.clear();
+            latest.clear();
+            State snapshot = state.copy();
+            queue.add(snapshot::showTo);
+            logger.warning("user interface sink " + name + " fell behind and is shown the current state instead");
+        }
+
+        private void postCoalesced(Object key, Consumer<UserInterface> event) {
+            // only the first update since the sink last caught up needs a place in the queue
+            if (latest.put(key, event) == null && !post(new Marker(key, latest)))
+                latest.remove(key);
+        }
+
+        private void close() {
+            closed = true;
+            // bypass the closed check and never drop the final event
+            Consumer<UserInterface> last = u -> {
+                try {
+                    u.dispose();
+                } finally {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            while (!queue.offer(last)) queue.poll();
+        }
+
+        @Override
+        public void run() {
+            ThreadLogger.logStart(logger, Thread.currentThread().getName());
+            try {
+                ui = factory.get();
+            } catch (RuntimeException e) {
+                logger.severe("user interface sink " + name + " could not be created: " + e);
+                closed = true;
+                sinks.remove(this);
+                queue.clear();
+                ThreadLogger.logStop(logger, Thread.currentThread().getName());
+                return;
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    queue.take().accept(ui);
+                } catch (InterruptedException e) {
+                    break;
+                } catch (RuntimeException e) {
+                    logger.warning("user interface sink " + name + " failed: " + e);
+                }
+            }
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+        }
+    }
+}
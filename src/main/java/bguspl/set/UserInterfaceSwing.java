@@ -2,12 +2,18 @@ package bguspl.set;
 
 import bguspl.set.ex.Player;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,16 +29,68 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
+    private final Util util;
 
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
 
-    public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+    private static String cardResourceName(Config config, int card) {
+        return "cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+    }
+
+    /**
+     * Checks whether the shipped card images cover the configured deck (i.e. the first and last card exist).
+     */
+    private static boolean hasCardImages(Config config) {
+        if (config.featureSize >= 10) return false; // otherwise there will be naming conflicts
+        ClassLoader loader = UserInterfaceSwing.class.getClassLoader();
+        return loader.getResource(cardResourceName(config, 0)) != null
+                && loader.getResource(cardResourceName(config, config.deckSize - 1)) != null;
+    }
+
+    private static Image readImageResource(String filename) {
+        URL imageResource = UserInterfaceSwing.class.getClassLoader().getResource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        try {
+            return ImageIO.read(imageResource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts decoding the shipped card images, in parallel on the common fork/join pool, so that it overlaps the rest
+     * of the game's startup.
+     *
+     * @param config - the game configuration.
+     * @return - the images by card id, or a future of null if there are no images for this deck.
+     */
+    public static CompletableFuture<Image[]> loadCardImages(Config config) {
+        if (!hasCardImages(config)) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.supplyAsync(() -> {
+            Image[] images = new Image[config.deckSize];
+            IntStream.range(0, config.deckSize).parallel()
+                    .forEach(card -> images[card] = readImageResource(cardResourceName(config, card)));
+            return images;
+        });
+    }
+
+    public UserInterfaceSwing(Logger logger, Config config, Util util, Player[] players) {
+        this(logger, config, util, players, loadCardImages(config));
+    }
+
+    /**
+     * @param cardImages - the card images being loaded (see loadCardImages).
+     */
+    public UserInterfaceSwing(Logger logger, Config config, Util util, Player[] players,
+                              CompletableFuture<Image[]> cardImages) {
 
         this.config = config;
+        this.util = util;
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(cardImages);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -104,6 +162,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private final Image emptyCard;
         private final Image[] deck;
+        private final CardRenderer renderer;
         private final Image[][] grid;
         private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
@@ -115,18 +174,31 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             return new ImageIcon(imageResource).getImage();
         }
 
-        private GamePanel() {
+        private Image cardImage(int card) {
+            return renderer != null ? renderer.image(card) : deck[card];
+        }
 
-            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+        private GamePanel(CompletableFuture<Image[]> cardImages) {
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
+            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            Image[] images;
+            try {
+                images = cardImages.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalArgumentException("cannot load card images: " + e.getCause(), e);
+            }
+            if (images != null) {
+                // the pictures from the png files, decoded in parallel while the game started
+                renderer = null;
+                deck = images;
+                emptyCard = loadImageResource("cards/empty_card.png");
+            } else {
+                // no art for this variant: draw the cards on demand, caching a few tables worth of images
+                renderer = new CardRenderer(config, util, 4 * config.tableSize);
+                deck = null;
+                emptyCard = renderer.emptyCard();
+            }
 
             grid = new Image[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
@@ -151,7 +223,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         private void placeCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
+            grid[row][column] = cardImage(card);
             validate();
             repaint();
         }
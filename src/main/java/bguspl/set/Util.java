@@ -23,6 +23,17 @@ public interface Util {
      */
     int[][] cardsToFeatures(int[] cards);
 
+    /**
+     * Returns a single feature of a card, without allocating a features array.
+     *
+     * @param card    - the card id.
+     * @param feature - the feature index (between 0 and config.featureCount - 1).
+     * @return - the feature value (between 0 and config.featureSize - 1).
+     */
+    default int cardFeature(int card, int feature) {
+        return cardToFeatures(card)[feature];
+    }
+
     /**
      * Checks if an array of cards forms a legal set.
      *
@@ -31,6 +42,14 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Computes the card completing some cards into a legal set.
+     *
+     * @param cards - config.featureSize - 1 different cards.
+     * @return - the id of the single card completing the cards into a set, or -1 if there is none (or more than one).
+     */
+    int completeSet(int[] cards);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
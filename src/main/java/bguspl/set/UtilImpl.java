@@ -1,27 +1,110 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * The implementation of the UserInterface interface.
+ * The implementation of the Util interface.
+ * <p>
+ * The features of every card are decoded once, at construction, into a flat table that all the feature accessors
+ * read from. Sets are tested on packed card encodings: every card has a mask with one bit per (feature, value) pair,
+ * so the union of the masks of k cards has, for each feature, a single bit if the feature is all same and k bits if
+ * it is all different. Since a set of featureSize cards must use every value of an all different feature, the last
+ * card of a set is determined by the others, so set search only enumerates featureSize - 1 cards and looks the last
+ * one up.
+ * The classic featureSize 3 case additionally uses a precomputed table of the card completing each pair.
  */
 public class UtilImpl implements Util {
 
+    /**
+     * The largest deck for which the table of pair completions is precomputed (the table has deckSize ^ 2 entries).
+     */
+    private static final int MAX_THIRDS_DECK_SIZE = 729;
+
+    /**
+     * The number of first card positions a parallel search task searches itself instead of splitting them further.
+     */
+    private static final int PARALLEL_SEARCH_THRESHOLD = 4;
+
     private final Config config;
 
+    /**
+     * The value of feature f of a card is features[card * featureCount + f] (unsigned).
+     */
+    private final byte[] features;
+
+    /**
+     * The packed encoding of each card: the bit of value v of feature f is bit f * featureSize + v (null if the
+     * features do not fit in a long).
+     */
+    private final long[] masks;
+
+    /**
+     * The bits of a single feature in a card mask (i.e. (1 << featureSize) - 1).
+     */
+    private final long valueMask;
+
+    /**
+     * The card completing each pair of cards a, b into a set is thirds[a * deckSize + b] (null unless featureSize is
+     * 3 and the deck is small enough).
+     */
+    private final int[] thirds;
+
     public UtilImpl(Config config) {
         this.config = config;
+
+        features = new byte[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card) {
+            int id = card;
+            for (int f = config.featureCount - 1; f >= 0; --f) {
+                features[card * config.featureCount + f] = (byte) (id % config.featureSize);
+                id /= config.featureSize;
+            }
+        }
+
+        int bits = config.featureCount * config.featureSize;
+        valueMask = config.featureSize < Long.SIZE ? (1L << config.featureSize) - 1 : -1L;
+        if (bits <= Long.SIZE) {
+            masks = new long[config.deckSize];
+            for (int card = 0; card < config.deckSize; ++card)
+                for (int f = 0; f < config.featureCount; ++f)
+                    masks[card] |= 1L << (f * config.featureSize + cardFeature(card, f));
+        } else {
+            masks = null;
+        }
+
+        if (config.featureSize == 3 && config.deckSize <= MAX_THIRDS_DECK_SIZE) {
+            // filled before it is assigned, since complete() uses the table once it exists
+            int[] table = new int[config.deckSize * config.deckSize];
+            int[] pair = new int[2];
+            for (int a = 0; a < config.deckSize; ++a)
+                for (int b = 0; b < config.deckSize; ++b) {
+                    pair[0] = a;
+                    pair[1] = b;
+                    table[a * config.deckSize + b] = complete(pair, 2);
+                }
+            thirds = table;
+        } else {
+            thirds = null;
+        }
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        int offset = card * config.featureCount;
+        for (int i = 0; i < config.featureCount; ++i)
+            features[i] = this.features[offset + i];
+    }
+
+    @Override
+    public int cardFeature(int card, int feature) {
+        return features[card * config.featureCount + feature] & 0xFF;
     }
 
     @Override
@@ -34,27 +117,84 @@ public class UtilImpl implements Util {
     @Override
     public int[][] cardsToFeatures(int[] cards) {
         int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        for (int i = 0; i < cards.length; ++i)
+            cardToFeatures(cards[i], features[i]);
         return features;
     }
 
+    /**
+     * @return - the one-hot bits of a feature of a card (bit v is set for value v).
+     */
+    private long featureBits(int card, int feature) {
+        if (masks != null)
+            return (masks[card] >>> (feature * config.featureSize)) & valueMask;
+        return 1L << cardFeature(card, feature);
+    }
+
+    /**
+     * Computes the card completing featureSize - 1 cards into a set.
+     *
+     * @param cards  - the card ids (only the first length are used).
+     * @param length - the number of cards (featureSize - 1, at least 2).
+     * @return - the card id, or -1 if no card completes them (i.e. some feature is neither all same nor all different).
+     */
+    private int complete(int[] cards, int length) {
+        if (length == 2 && thirds != null)
+            return thirds[cards[0] * config.deckSize + cards[1]];
+
+        int card = 0;
+        for (int f = 0; f < config.featureCount; ++f) {
+            long union = 0;
+            for (int i = 0; i < length; ++i)
+                union |= featureBits(cards[i], f);
+            int values = Long.bitCount(union);
+            long missing;
+            if (values == 1) missing = union; // all same
+            else if (values == length) missing = ~union & valueMask; // all different, take the unused value
+            else return -1;
+            card = card * config.featureSize + Long.numberOfTrailingZeros(missing);
+        }
+        return card;
+    }
+
+    @Override
+    public int completeSet(int[] cards) {
+        // with two values any card completes a single card into a set
+        if (cards.length != config.featureSize - 1 || cards.length < 2) return -1;
+        return complete(cards, cards.length);
+    }
+
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (cards.length < 2 || masks == null) return testSetByFeatures(cards);
+        if (cards.length == 3 && thirds != null)
+            return thirds[cards[0] * config.deckSize + cards[1]] == cards[2];
+
+        long union = 0;
+        for (int card : cards)
+            union |= masks[card];
+        for (int f = 0; f < config.featureCount; ++f) {
+            int values = Long.bitCount((union >>> (f * config.featureSize)) & valueMask);
+            if (values != 1 && values != cards.length) return false;
+        }
+        return true;
+    }
+
+    private boolean testSetByFeatures(int[] cards) {
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                if (cardFeature(cards[0], i) != cardFeature(cards[j], i)) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (cardFeature(cards[j - 1], i) == cardFeature(cards[k], i)) {
                         butDifferent = false;
                         break;
                     }
@@ -66,6 +206,137 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        // with fewer than 3 cards per set the last card is not determined by the others
+        if (config.featureSize < 3) return findSetsByCombinations(deck, count);
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        int[] positions = new int[config.deckSize];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < cards.length; ++i)
+            positions[cards[i]] = i;
+
+        if (cards.length >= config.parallelFindSetsThreshold)
+            return findSetsParallel(cards, positions, count);
+
+        LinkedList<int[]> sets = new LinkedList<>();
+        int[] prefix = new int[config.featureSize - 1];
+        int[] prefixCards = new int[config.featureSize - 1];
+        for (int first = 0; first < cards.length && sets.size() < count; ++first)
+            searchFrom(cards, positions, first, prefix, prefixCards, set -> {
+                sets.add(set);
+                return sets.size() < count;
+            });
+        return sets;
+    }
+
+    /**
+     * Receives the sets found by searchFrom.
+     */
+    private interface SetCollector {
+        /**
+         * @param set - the sorted card ids of a set.
+         * @return - true iff the search should go on.
+         */
+        boolean add(int[] set);
+    }
+
+    /**
+     * Finds the sets whose lowest deck position is first, in lexicographic order of the deck positions. For every
+     * combination of featureSize - 1 cards, the card completing them is looked up and must come later in the deck.
+     *
+     * @return - false iff the collector stopped the search.
+     */
+    private boolean searchFrom(int[] cards, int[] positions, int first, int[] prefix, int[] prefixCards,
+                               SetCollector collector) {
+        int n = cards.length;
+        int r = prefix.length; // the number of cards enumerated (featureSize - 1)
+        if (first > n - r - 1) return true;
+        for (int i = 0; i < r; ++i)
+            prefix[i] = first + i;
+
+        while (true) {
+            for (int i = 0; i < r; ++i)
+                prefixCards[i] = cards[prefix[i]];
+            int last = complete(prefixCards, r);
+            if (last >= 0 && positions[last] > prefix[r - 1]) {
+                int[] set = Arrays.copyOf(prefixCards, r + 1);
+                set[r] = last;
+                Arrays.sort(set);
+                if (!collector.add(set)) return false;
+            }
+
+            // generate next combination in lexicographic order, keeping the first card (and leaving room for the last)
+            int t = r - 1;
+            while (t > 1 && prefix[t] == n - 1 - r + t) --t;
+            if (t == 0 || prefix[t] == n - 1 - r + t) return true;
+            prefix[t]++;
+            for (int i = t + 1; i < r; i++) prefix[i] = prefix[i - 1] + 1;
+        }
+    }
+
+    /**
+     * Finds up to count sets using the common fork/join pool. The search space is split by the deck position of the
+     * first card of the set, and all tasks stop as soon as count sets were found (so unlike the serial search, the
+     * sets found are not necessarily the lexicographically first ones).
+     */
+    private List<int[]> findSetsParallel(int[] cards, int[] positions, int count) {
+        ConcurrentLinkedQueue<int[]> sets = new ConcurrentLinkedQueue<>();
+        AtomicInteger found = new AtomicInteger();
+        ForkJoinPool.commonPool().invoke(new FindSetsTask(cards, positions, 0, cards.length, count, sets, found));
+        return new ArrayList<>(sets);
+    }
+
+    private class FindSetsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cards;
+        private final int[] positions;
+        private final int from, to;
+        private final int count;
+        private final ConcurrentLinkedQueue<int[]> sets;
+        private final AtomicInteger found;
+
+        /**
+         * @param from - the first deck position of the first card (inclusive).
+         * @param to   - the last deck position of the first card (exclusive).
+         */
+        FindSetsTask(int[] cards, int[] positions, int from, int to, int count, ConcurrentLinkedQueue<int[]> sets,
+                     AtomicInteger found) {
+            this.cards = cards;
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.sets = sets;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() >= count) return;
+            if (to - from > PARALLEL_SEARCH_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FindSetsTask(cards, positions, from, middle, count, sets, found),
+                        new FindSetsTask(cards, positions, middle, to, count, sets, found));
+                return;
+            }
+            int r = config.featureSize - 1;
+            int[] prefix = new int[r], prefixCards = new int[r];
+            SetCollector collector = set -> {
+                if (found.incrementAndGet() > count) return false;
+                sets.add(set);
+                return found.get() < count;
+            };
+            for (int first = from; first < to; ++first)
+                if (!searchFrom(cards, positions, first, prefix, prefixCards, collector)) return;
+        }
+    }
+
+    /**
+     * Finds sets by testing every combination of featureSize cards (used when sets have fewer than 3 cards).
+     */
+    private List<int[]> findSetsByCombinations(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
@@ -0,0 +1,157 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The state of a game at a point in time, enough to resume it: the cards on the table, the dealer's deck (in order),
+ * the players' scores, the time left in the turn and the game statistics (so the resumed game is recorded as the same
+ * game). Tokens and freezes are not kept (players place their tokens again after resuming).
+ * <p>
+ * The binary format (big endian) is: the magic number and format version, the number of players, the table size and
+ * the deck size (which must match the configuration the game resumes with), the time the checkpoint was taken, the
+ * time left in the turn, the scores, the card in every slot (-1 if empty), the deck length and cards, the game
+ * statistics, and a CRC32 of everything before it.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x53455443; // "SETC"
+    private static final short VERSION = 2;
+
+    /**
+     * The size of the fixed fields (everything but the scores, slots, deck and statistics).
+     */
+    private static final int FIXED_BYTES = 4 + 2 + 4 + 4 + 4 + 8 + 8 + 4 + 8;
+
+    final long savedAtMillis;
+    final long turnMillisLeft;
+    final int[] scores;
+    final int[] slots;
+    final int[] deck;
+    final GameStats stats;
+
+    /**
+     * @param savedAtMillis  - when the checkpoint was taken (epoch milliseconds).
+     * @param turnMillisLeft - the time left until the reshuffle (-1 if there is no turn timeout).
+     * @param scores         - the score of every player.
+     * @param slots          - the card in every slot (-1 if empty).
+     * @param deck           - the dealer's deck.
+     * @param stats          - the game statistics so far (not changed afterwards).
+     */
+    Checkpoint(long savedAtMillis, long turnMillisLeft, int[] scores, int[] slots, int[] deck, GameStats stats) {
+        this.savedAtMillis = savedAtMillis;
+        this.turnMillisLeft = turnMillisLeft;
+        this.scores = scores;
+        this.slots = slots;
+        this.deck = deck;
+        this.stats = stats;
+    }
+
+    /**
+     * @return - when the checkpoint was taken (epoch milliseconds).
+     */
+    public long savedAtMillis() {
+        return savedAtMillis;
+    }
+
+    /**
+     * @param deckSize - the size of the full deck.
+     * @return - the checkpoint in its binary format.
+     */
+    ByteBuffer encode(int deckSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_BYTES + 4 * (scores.length + slots.length + deck.length)
+                + GameStats.bytes(scores.length));
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(scores.length).putInt(slots.length).putInt(deckSize)
+                .putLong(savedAtMillis).putLong(turnMillisLeft);
+        for (int score : scores) buffer.putInt(score);
+        for (int card : slots) buffer.putInt(card);
+        buffer.putInt(deck.length);
+        for (int card : deck) buffer.putInt(card);
+        stats.put(buffer);
+        buffer.putLong(crc(buffer, 0, buffer.position()));
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return - the CRC32 of the bytes of the buffer from one index (inclusive) to another (exclusive).
+     */
+    private static long crc(ByteBuffer buffer, int from, int to) {
+        ByteBuffer data = buffer.duplicate();
+        data.limit(to);
+        data.position(from);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads a checkpoint and checks it fits the configuration.
+     *
+     * @param buffer - the checkpoint in its binary format.
+     * @param config - the configuration the game resumes with.
+     * @return - the checkpoint.
+     * @throws IOException - if the checkpoint is damaged or belongs to a game with a different configuration.
+     */
+    static Checkpoint decode(ByteBuffer buffer, Config config) throws IOException {
+        try {
+            int start = buffer.position();
+            if (buffer.getInt() != MAGIC) throw new IOException("not a checkpoint");
+            if (buffer.getShort() != VERSION) throw new IOException("unknown checkpoint version");
+            int players = buffer.getInt();
+            int tableSize = buffer.getInt();
+            int deckSize = buffer.getInt();
+            if (players != config.players || tableSize != config.tableSize || deckSize != config.deckSize)
+                throw new IOException("checkpoint of a game with " + players + " players, table size " + tableSize
+                        + " and deck size " + deckSize);
+            long savedAtMillis = buffer.getLong();
+            long turnMillisLeft = buffer.getLong();
+            int[] scores = new int[players];
+            for (int i = 0; i < players; ++i) scores[i] = buffer.getInt();
+            int[] slots = new int[tableSize];
+            for (int i = 0; i < tableSize; ++i) slots[i] = card(buffer.getInt(), deckSize, true);
+            int deckLength = buffer.getInt();
+            if (deckLength < 0 || deckLength > deckSize) throw new IOException("invalid deck length " + deckLength);
+            int[] deck = new int[deckLength];
+            for (int i = 0; i < deckLength; ++i) deck[i] = card(buffer.getInt(), deckSize, false);
+            GameStats stats = GameStats.get(buffer, players);
+            long expected = crc(buffer, start, buffer.position());
+            if (buffer.getLong() != expected) throw new IOException("checkpoint checksum mismatch");
+            return new Checkpoint(savedAtMillis, turnMillisLeft, scores, slots, deck, stats);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("checkpoint cut short");
+        }
+    }
+
+    private static int card(int card, int deckSize, boolean mayBeEmpty) throws IOException {
+        if (card >= deckSize || card < (mayBeEmpty ? -1 : 0)) throw new IOException("invalid card " + card);
+        return card;
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file   - the checkpoint file.
+     * @param config - the configuration the game resumes with.
+     * @return - the checkpoint.
+     * @throws IOException - if the file cannot be read, is damaged or belongs to a game with a different
+     *                     configuration.
+     */
+    public static Checkpoint read(Path file, Config config) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("checkpoint too large");
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) break;
+            buffer.flip();
+            return decode(buffer, config);
+        }
+    }
+}
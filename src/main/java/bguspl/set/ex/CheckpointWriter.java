@@ -0,0 +1,110 @@
+package bguspl.set.ex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Writes checkpoints to a file on a background thread, so the dealer only pays for copying the game state. A
+ * checkpoint is written to a temporary file, forced to disk and then moved over the checkpoint file, so the file always
+ * holds a whole checkpoint even if the game dies while writing. A checkpoint submitted while another one is still
+ * being written replaces any checkpoint waiting after it (only the latest one matters).
+ */
+public class CheckpointWriter implements AutoCloseable {
+
+    private final Logger logger;
+    private final Path file;
+    private final Path temporary;
+    private final int deckSize;
+    private final ExecutorService executor;
+
+    /**
+     * The latest checkpoint waiting to be written (null if none).
+     */
+    private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+
+    /**
+     * @param logger   - the logger.
+     * @param file     - the checkpoint file.
+     * @param deckSize - the size of the full deck.
+     */
+    public CheckpointWriter(Logger logger, Path file, int deckSize) {
+        this.logger = logger;
+        this.file = file.toAbsolutePath();
+        this.temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        this.deckSize = deckSize;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules writing a checkpoint. Never blocks.
+     *
+     * @param checkpoint - the checkpoint.
+     */
+    void submit(Checkpoint checkpoint) {
+        if (pending.getAndSet(checkpoint) != null) return; // the scheduled write takes the latest
+        try {
+            executor.execute(this::writeLatest);
+        } catch (RejectedExecutionException ignored) {} // closed
+    }
+
+    private void writeLatest() {
+        Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) return;
+        ByteBuffer buffer = checkpoint.encode(deckSize);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        } catch (IOException e) {
+            logger.severe("error writing checkpoint: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.severe("error replacing checkpoint file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the checkpoint waiting to be written (if any) and stops.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+                logger.severe("timed out waiting for the last checkpoint to be written");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops and deletes the checkpoint file (e.g. once the game has ended, so the next game does not resume it).
+     */
+    public void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            logger.severe("error deleting checkpoint file: " + e.getMessage());
+        }
+    }
+}
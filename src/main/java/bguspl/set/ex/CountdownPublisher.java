@@ -0,0 +1,88 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+
+/**
+ * Publishes the turn countdown to the user interface only when the displayed value changes.
+ * The countdown is shown in whole seconds normally, and in config.turnTimeoutWarningResolutionMillis steps while the
+ * warning is displayed. The warning settings are read from the current configuration on every reset, so a reloaded
+ * configuration takes effect from the next turn.
+ */
+class CountdownPublisher {
+
+    private static final long SECOND_MILLIS = 1000;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The configuration of the current turn.
+     */
+    private Config config;
+
+    /**
+     * The last value sent to the user interface (-1 if none since the last reset).
+     */
+    private long shown = -1;
+
+    /**
+     * The warning flag of the last value sent to the user interface.
+     */
+    private boolean shownWarn;
+
+    CountdownPublisher(Env env) {
+        this.env = env;
+        this.config = env.config;
+    }
+
+    /**
+     * Forces the next update to be published (e.g. after a reshuffle).
+     */
+    void reset() {
+        shown = -1;
+        config = env.currentConfig();
+    }
+
+    private boolean warn(long timeLeft) {
+        return timeLeft <= config.turnTimeoutWarningMillis;
+    }
+
+    private long granularity(boolean warn) {
+        return warn ? config.turnTimeoutWarningResolutionMillis : SECOND_MILLIS;
+    }
+
+    /**
+     * Sends the countdown to the user interface if its displayed value differs from the last one sent.
+     *
+     * @param timeLeft - the milliseconds left until the reshuffle.
+     */
+    void update(long timeLeft) {
+        timeLeft = Math.max(0, timeLeft);
+        boolean warn = warn(timeLeft);
+        long value = timeLeft - timeLeft % granularity(warn);
+        if (value != shown || warn != shownWarn) {
+            shown = value;
+            shownWarn = warn;
+            env.ui.setCountdown(value, warn);
+        }
+    }
+
+    /**
+     * Computes how long the dealer may sleep before the displayed countdown changes.
+     *
+     * @param timeLeft - the milliseconds left until the reshuffle.
+     * @return - the milliseconds until the next visible change (at least 1).
+     */
+    long millisUntilChange(long timeLeft) {
+        if (timeLeft <= 0) return 1;
+        boolean warn = warn(timeLeft);
+        long remainder = timeLeft % granularity(warn);
+        if (timeLeft - remainder != shown || warn != shownWarn) return 1; // already stale
+        long delay = remainder + 1;
+        if (!warn) delay = Math.min(delay, timeLeft - config.turnTimeoutWarningMillis);
+        return Math.max(1, Math.min(delay, timeLeft));
+    }
+}
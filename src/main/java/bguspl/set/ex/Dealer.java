@@ -1,22 +1,37 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
+import bguspl.set.StatsStore;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class manages the dealer's threads and data
  */
 public class Dealer implements Runnable {
 
+    private static final long SECOND_MILLIS = 1000;
+
+    /**
+     * The maximum time to wait for the players' threads to stop when the game ends.
+     */
+    private static final long PLAYERS_STOP_TIMEOUT_MILLIS = 5000;
+
     /**
      * The game environment object.
      */
@@ -33,30 +48,111 @@ public class Dealer implements Runnable {
      */
     private final List<Integer> deck;
 
+    /**
+     * The scores of all the players.
+     */
+    private final Scoreboard scoreboard;
+
+    /**
+     * Computes the sets on the table in the background.
+     */
+    private final HintService hints;
+
+    /**
+     * The statistics of the players in this game (written to env.stats when the game ends).
+     */
+    private final GameStats stats;
+
+    /**
+     * Writes the checkpoints of the game (null for none), and the time the next one is due.
+     */
+    private CheckpointWriter checkpoints;
+    private long checkpointMillis;
+    private long nextCheckpoint;
+
+    /**
+     * The checkpoint the game resumes from (null for a new game, and once resumed).
+     */
+    private Checkpoint resumeFrom;
+
+    /**
+     * Metrics: the time the dealer spends handling claims and dealing per loop iteration, and the claims, sets found
+     * and reshuffles so far.
+     */
+    private final LatencyHistogram iterationTime;
+    private final LongAdder claims;
+    private final LongAdder sets;
+    private final LongAdder reshuffles;
+
     /**
      * True iff game should be terminated.
      */
     private volatile boolean terminate;
 
+    /**
+     * True iff the game is being terminated to be resumed later (see {@link #suspend}), and true iff it was.
+     */
+    private volatile boolean suspending;
+    private volatile boolean suspended;
+
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
+    /**
+     * The turn timeout of the current turn (0 to show the time since the last action instead of a countdown, -1 to
+     * show nothing; in both cases the turn ends only when there is no set on the table), and the time of the last
+     * action (the turn starting or a set being found).
+     */
+    private long turnTimeoutMillis;
+    private long lastActionTime;
+
     //fields we added
     private final int[] cards;
-    private long sleepTime = 10;
+    private final int[] slots;
+    private final CountdownPublisher countdown;
     protected Object dealerWake;
     protected BlockingQueue<Integer> playerSetCompleteQueue = new LinkedBlockingQueue<>();
 
+    /**
+     * The threads generating the key presses of all computer players (null if there are none). Created with the
+     * dealer (its threads start with the first key press), so terminating the game shuts it down even if the dealer
+     * thread has not started yet.
+     */
+    private final ScheduledExecutorService computerScheduler;
+
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        this.cards = new int[3];
+        this.cards = new int[Table.MAX_TOKENS];
+        this.slots = new int[Table.MAX_TOKENS];
         this.dealerWake = new Object();
+        this.countdown = new CountdownPublisher(env);
+        this.scoreboard = new Scoreboard(players.length);
+        this.hints = new HintService(env, table);
+        this.stats = new GameStats(players.length);
+        this.iterationTime = env.metrics.histogram("dealer.iteration");
+        this.claims = env.metrics.counter("dealer.claims");
+        this.sets = env.metrics.counter("dealer.sets");
+        this.reshuffles = env.metrics.counter("dealer.reshuffles");
+        if (env.config.computerPlayers > 0) {
+            AtomicInteger threads = new AtomicInteger();
+            computerScheduler = Executors.newScheduledThreadPool(env.config.computerSchedulerThreads,
+                    task -> new Thread(task, "computers-" + threads.getAndIncrement()));
+        } else {
+            computerScheduler = null;
+        }
+        env.metrics.gauge("dealer.claimQueue", playerSetCompleteQueue::size);
+        env.metrics.gauge("players.pendingKeyPresses", () -> {
+            int pending = 0;
+            for (Player player : players)
+                if (player != null) pending += player.pendingKeyPresses();
+            return pending;
+        });
        
     }
 
@@ -66,33 +162,46 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        Thread[] playerThreads = new Thread[players.length];
         for (int i = 0; i < players.length; i++) {
-            Thread player = new Thread(players[i], "player" + i);
-            player.start();
+            playerThreads[i] = new Thread(players[i], "player" + i);
+            playerThreads[i].start();
         }
 
+        long turnMillis = resumeFrom != null && resumeFrom.turnMillisLeft >= 0 ? resumeFrom.turnMillisLeft : -1;
+        if (resumeFrom != null) restore();
+
         while (!shouldFinish()) {
             placeCardsOnTable();
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+            // a new turn is where a reloaded turn timeout takes effect
+            turnTimeoutMillis = env.currentConfig().turnTimeoutMillis;
+            if (turnMillis < 0) turnMillis = turnTimeoutMillis;
+            lastActionTime = System.currentTimeMillis();
+            reshuffleTime = turnTimeoutMillis > 0 ? lastActionTime + turnMillis : Long.MAX_VALUE;
+            turnMillis = -1;
+            countdown.reset();
             updateTimerDisplay(false);
             
-            timerLoop();
+            if (turnTimeoutMillis > 0 || tableHasSet()) timerLoop();
             //updateTimerDisplay(true);
+            if (suspending && checkpoints != null) break; // the cards stay on the table for the last checkpoint
             removeAllCardsFromTable();
+            reshuffles.increment();
         }
         if(!terminate){
             terminate();
         }
-        announceWinners();
-        
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        
-        try{
-            Thread.sleep(env.config.endGamePauseMillies);
+        awaitPlayers(playerThreads);
+        // a suspended game is neither announced nor recorded: it goes on when it is resumed
+        if (suspending && checkpoints != null && !gameOver()) {
+            submitCheckpoint(System.currentTimeMillis());
+            suspended = true;
+            env.logger.info("game suspended, it will be resumed from its checkpoint");
+        } else {
+            announceWinners();
         }
-        catch(InterruptedException ignored){}
-        
-        
+
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
@@ -101,12 +210,84 @@ public class Dealer implements Runnable {
     private void timerLoop() {
         while (!terminate && System.currentTimeMillis() < reshuffleTime) {
             sleepUntilWokenOrTimeout();
+            long start = System.nanoTime();
             updateTimerDisplay(false);
             removeCardsFromTable(); 
             placeCardsOnTable();
+            checkpoint();
+            iterationTime.recordSince(start);
+            // without a turn timeout the turn ends once the table has no set
+            if (turnTimeoutMillis <= 0 && !tableHasSet()) return;
         }
     }
 
+    /**
+     * Saves the state of the game periodically (must be called before the dealer thread starts).
+     *
+     * @param writer       - writes the checkpoints.
+     * @param periodMillis - the time between checkpoints.
+     */
+    public void checkpointTo(CheckpointWriter writer, long periodMillis) {
+        this.checkpoints = writer;
+        this.checkpointMillis = periodMillis;
+    }
+
+    /**
+     * Resumes the game from a checkpoint instead of starting a new game (must be called before the dealer thread
+     * starts).
+     *
+     * @param checkpoint - the checkpoint.
+     */
+    public void resume(Checkpoint checkpoint) {
+        this.resumeFrom = checkpoint;
+    }
+
+    /**
+     * Puts the cards of the checkpoint back on the table and in the deck, and restores the scores and statistics.
+     */
+    private void restore() {
+        deck.clear();
+        for (int card : resumeFrom.deck) deck.add(card);
+        for (int slot = 0; slot < resumeFrom.slots.length; ++slot)
+            if (resumeFrom.slots[slot] >= 0) table.placeCard(resumeFrom.slots[slot], slot);
+        for (int player = 0; player < players.length; ++player) {
+            scoreboard.set(player, resumeFrom.scores[player]);
+            env.ui.setScore(player, resumeFrom.scores[player]);
+        }
+        stats.restore(resumeFrom.stats);
+        stats.tableChanged();
+        resumeFrom = null;
+    }
+
+    /**
+     * Takes a checkpoint of the game if one is due. Only copies the state; the checkpoint writer thread writes it.
+     */
+    private void checkpoint() {
+        if (checkpoints == null) return;
+        long now = System.currentTimeMillis();
+        if (now < nextCheckpoint) return;
+        nextCheckpoint = now + checkpointMillis;
+        submitCheckpoint(now);
+    }
+
+    /**
+     * Copies the state of the game to a checkpoint and hands it to the checkpoint writer thread.
+     *
+     * @param now - the current time (epoch milliseconds).
+     */
+    private void submitCheckpoint(long now) {
+        int[] scores = scoreboard.snapshot();
+        int[] slotCards = new int[env.config.tableSize];
+        for (int slot = 0; slot < slotCards.length; ++slot) {
+            Integer card = table.slotToCard[slot];
+            slotCards[slot] = card == null ? -1 : card;
+        }
+        int[] deckCards = new int[deck.size()];
+        for (int i = 0; i < deckCards.length; ++i) deckCards[i] = deck.get(i);
+        long turnMillisLeft = turnTimeoutMillis > 0 ? Math.max(0, reshuffleTime - now) : -1;
+        checkpoints.submit(new Checkpoint(now, turnMillisLeft, scores, slotCards, deckCards, stats.copy()));
+    }
+
     /**
      * Called when the game should be terminated.
      */
@@ -116,6 +297,54 @@ public class Dealer implements Runnable {
             
         }
         terminate = true;
+        if (computerScheduler != null) computerScheduler.shutdownNow();
+        hints.shutdown();
+        synchronized (dealerWake) {
+            dealerWake.notifyAll();
+        }
+    }
+
+    /**
+     * Terminates the game without ending it, to be resumed from its checkpoint the next time (e.g. when the window is
+     * closed): the last checkpoint is taken with the cards still on the table, and the winners are neither announced
+     * nor recorded. Without checkpoints, or once the game is over, this is the same as {@link #terminate}.
+     */
+    public void suspend() {
+        suspending = true;
+        terminate();
+    }
+
+    /**
+     * @return - true iff the dealer thread stopped with the game suspended rather than over.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Waits for the player threads and the computer players' scheduler threads to stop (terminate stops them all), so
+     * none of them outlives the dealer thread.
+     *
+     * @param playerThreads - the player threads.
+     */
+    private void awaitPlayers(Thread[] playerThreads) {
+        long deadline = System.currentTimeMillis() + PLAYERS_STOP_TIMEOUT_MILLIS;
+        try {
+            for (Thread thread : playerThreads)
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (computerScheduler != null && !computerScheduler.awaitTermination(
+                    Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS))
+                env.logger.warning("computer player threads did not stop");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return - the scheduler shared by all computer players for generating key presses.
+     */
+    ScheduledExecutorService computerScheduler() {
+        return computerScheduler;
     }
 
     /**
@@ -137,6 +366,7 @@ public class Dealer implements Runnable {
             while(!playerSetCompleteQueue.isEmpty()){
                 
                 idFirst = playerSetCompleteQueue.remove();
+                claims.increment();
                 Player firstPlayer =  null ;
                 boolean found = false;
 
@@ -146,27 +376,37 @@ public class Dealer implements Runnable {
                         found = true;
                     }
                 }
-                if(table.numOfTokens[idFirst] == 3){
-                    
-                    for(int i = 0 ; i < 3 ; i++){
-                        int slot = table.playerTokens[idFirst][i];
-                        cards[i] = table.slotToCard[slot];
+                if(table.numOfTokens(idFirst) == Table.MAX_TOKENS){
+                    GameEvents.Verdict verdict = new GameEvents.Verdict();
+                    verdict.begin();
+                    for(int i = 0 ; i < Table.MAX_TOKENS ; i++){
+                        slots[i] = table.tokenSlot(idFirst, i);
+                        cards[i] = table.slotToCard[slots[i]];
                     }         
                     boolean isSet =  env.util.testSet(cards);
+                    stats.verdict(idFirst, isSet);
                     if(isSet){
-                        table.removeCard(table.playerTokens[idFirst][0]);
-                        table.removeCard(table.playerTokens[idFirst][1]);
-                        table.removeCard(table.playerTokens[idFirst][2]);
-                        
+                        sets.increment();
+                        // the point is the dealer's to give, so it is never lost to the game ending meanwhile
+                        scoreboard.increment(idFirst);
+                        table.replaceSlots(slots, drawReplacements(slots));
+                        stats.tableChanged();
+                        lastActionTime = System.currentTimeMillis();
+                        // the table is usually full again, so placeCardsOnTable will not ask for the new hints
+                        hints.tableChanged();
+
                         firstPlayer.isSet.add(true);
                     }
                     else{
-                        for (int i = 0 ; i < 3 ; i++){
-                            table.removeToken(idFirst , table.playerTokens[idFirst][i]);
+                        for (int slot : slots){
+                            table.removeToken(idFirst , slot);
                         }
                         firstPlayer.isSet.add(false);
                         
                         }
+                    verdict.player = idFirst;
+                    verdict.legal = isSet;
+                    verdict.commit();
 
                     }    
                 else{
@@ -191,6 +431,8 @@ public class Dealer implements Runnable {
             return;
        
         else if(cardsinTable < tableSize){////////////////////////////////// change a little bit here./////////
+            if (env.currentConfig().ensureSetOnTable)
+                moveSetToDeckFront(Math.min(tableSize - cardsinTable, cardsinDeck), new int[0]);
             int numOfIter = Math.min(tableSize - cardsinTable , cardsinDeck);
             for(int i = 0 ; i < tableSize && numOfIter > 0 ; i++){
                     if(table.slotToCard[i] == null){
@@ -198,33 +440,135 @@ public class Dealer implements Runnable {
                         numOfIter--;
                     }
                 }    
+            if (cardsinDeck > 0) stats.tableChanged();
         }
-        System.out.println("hints are:");
-        table.hints();
-        if(deck.size() == 0){
-            List<Integer> tableCheck = new LinkedList<>();
-            for(int i = 0 ; i < tableSize ; i++){
-                if(table.slotToCard[i] != null){
-                    tableCheck.add(table.slotToCard[i]);
-                }
-            }
-            if(env.util.findSets(tableCheck, 1).size() == 0){
-                terminate();
+        hints.tableChanged();
+        if(deck.size() == 0 && !tableHasSet()){
+            terminate();
+        }
+    }
+
+    /**
+     * @return - true iff no legal set is left among the cards on the table and in the deck.
+     */
+    private boolean gameOver() {
+        List<Integer> left = new ArrayList<>(deck);
+        for (Integer card : table.slotToCard)
+            if (card != null) left.add(card);
+        return env.util.findSets(left, 1).isEmpty();
+    }
+
+    /**
+     * @return - true iff the cards on the table include a legal set.
+     */
+    private boolean tableHasSet() {
+        List<Integer> onTable = new ArrayList<>(env.config.tableSize);
+        for (Integer card : table.slotToCard)
+            if (card != null) onTable.add(card);
+        return !env.util.findSets(onTable, 1).isEmpty();
+    }
 
+
+    /**
+     * Draws the cards replacing the cards of a set that was found.
+     *
+     * @param freed - the slots of the set.
+     * @return - the card for each slot (-1 if the deck ran out).
+     */
+    private int[] drawReplacements(int[] freed) {
+        Collections.shuffle(deck);
+        if (env.currentConfig().ensureSetOnTable)
+            moveSetToDeckFront(Math.min(freed.length, deck.size()), freed);
+        int[] replacements = new int[freed.length];
+        for (int i = 0; i < freed.length; ++i)
+            replacements[i] = deck.isEmpty() ? -1 : deck.remove(0);
+        return replacements;
+    }
+
+    /**
+     * Moves the deck cards that complete a set with the cards on the table to the front of the deck, so they are the
+     * next ones placed. Does nothing if the table already has a set, or if no set can be completed with the number of
+     * cards about to be placed (in which case the turn ends and the deck is reshuffled as usual).
+     *
+     * @param placed - the number of cards about to be placed.
+     * @param freed  - slots whose cards are about to be replaced (their cards do not count as on the table).
+     */
+    void moveSetToDeckFront(int placed, int[] freed) {
+        List<Integer> onTable = new ArrayList<>(env.config.tableSize);
+        for (int slot = 0; slot < env.config.tableSize; ++slot) {
+            Integer card = table.slotToCard[slot];
+            boolean isFreed = false;
+            for (int freedSlot : freed) isFreed |= freedSlot == slot;
+            if (card != null && !isFreed) onTable.add(card);
+        }
+        if (placed == 0 || !env.util.findSets(onTable, 1).isEmpty()) return;
+
+        List<Integer> missing = new ArrayList<>(env.config.featureSize);
+        if (placed >= env.config.featureSize) {
+            // every set is at most placed cards away, so the first one found will do
+            List<Integer> candidates = new ArrayList<>(onTable);
+            candidates.addAll(deck);
+            for (int[] set : env.util.findSets(candidates, 1))
+                for (int card : set)
+                    if (!onTable.contains(card)) missing.add(card);
+        } else {
+            // the set must keep enough cards of the table: try the sets with the fewest deck cards first
+            int[] known = new int[env.config.featureSize - 1];
+            Set<Integer> inDeck = new HashSet<>(deck);
+            for (int fromDeck = 1; fromDeck <= placed && missing.isEmpty(); ++fromDeck) {
+                int tableCards = env.config.featureSize - fromDeck;
+                int card = completeWithDeck(onTable, tableCards, known, 0, 0, inDeck);
+                if (card < 0) continue;
+                for (int i = tableCards; i < known.length; ++i) missing.add(known[i]);
+                missing.add(card);
             }
         }
+        deck.removeAll(missing);
+        deck.addAll(0, missing);
+    }
+
+    /**
+     * Looks for a set made of some cards of the table and deck cards, using the card completing the others.
+     *
+     * @param onTable    - the cards on the table.
+     * @param tableCards - the number of table cards in the set.
+     * @param known      - filled with the table cards and then the deck cards of the set, except for the last card.
+     * @param length     - the number of cards of known filled so far.
+     * @param from       - the index to choose the next table (or deck) card from.
+     * @param inDeck     - the cards of the deck.
+     * @return - the deck card completing known into a set, or -1 if there is no such set.
+     */
+    private int completeWithDeck(List<Integer> onTable, int tableCards, int[] known, int length, int from,
+                                 Set<Integer> inDeck) {
+        if (length == known.length) {
+            int card = env.util.completeSet(known);
+            if (card < 0 || !inDeck.contains(card)) return -1;
+            for (int i = tableCards; i < known.length; ++i)
+                if (known[i] == card) return -1;
+            return card;
+        }
+        List<Integer> source = length < tableCards ? onTable : deck;
+        for (int i = length == tableCards ? 0 : from; i < source.size(); ++i) {
+            known[length] = source.get(i);
+            int card = completeWithDeck(onTable, tableCards, known, length + 1, i + 1, inDeck);
+            if (card >= 0) return card;
+        }
+        return -1;
     }
-    
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until the displayed countdown changes or until the thread is awakened for some purpose.
      */
     private void sleepUntilWokenOrTimeout() {
         synchronized(dealerWake){
          
         try{   
             //System.out.println(Thread.currentThread().getName());
-            dealerWake.wait(sleepTime);
+            // a claim queued before we took the lock would not notify us, so check first
+            if (playerSetCompleteQueue.isEmpty())
+                dealerWake.wait(turnTimeoutMillis > 0
+                        ? countdown.millisUntilChange(reshuffleTime - System.currentTimeMillis())
+                        : SECOND_MILLIS - (System.currentTimeMillis() - lastActionTime) % SECOND_MILLIS);
             //System.out.println(123);
         }   
         catch (InterruptedException ignored) {}
@@ -238,11 +582,11 @@ public class Dealer implements Runnable {
         long currentTime = System.currentTimeMillis();
         long timeLeft = reshuffleTime - currentTime;
         if (reset && !shouldFinish()) {
-            reshuffleTime = currentTime + env.config.turnTimeoutMillis;
+            reshuffleTime = currentTime + env.currentConfig().turnTimeoutMillis;
             
         }
-        boolean isRed = timeLeft <= env.config.turnTimeoutWarningMillis;
-        env.ui.setCountdown(timeLeft, isRed);
+        if (turnTimeoutMillis > 0) countdown.update(timeLeft);
+        else if (turnTimeoutMillis == 0) env.ui.setElapsed(currentTime - lastActionTime);
     }
         
 
@@ -250,35 +594,49 @@ public class Dealer implements Runnable {
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
+        GameEvents.Reshuffle event = new GameEvents.Reshuffle();
+        event.begin();
         for (int i = 0; i < env.config.tableSize; i++) {
             if (table.slotToCard[i] != null) {
                 deck.add(table.slotToCard[i]); 
                 table.removeCard(i);
+                event.cards++;
             }
         }
-        
+        event.deckSize = deck.size();
+        event.commit();
     }
 
     /**
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
-    List<Player> winnersList = new ArrayList<>();
-    int maxScore = 0;
-    for (Player p : players) {
-        if (p.score() > maxScore)
-            maxScore = p.score();
-    }
-    for (Player p : players) {
-        if (p.score() == maxScore)
-            winnersList.add(p);
+        int[] scores = scoreboard.snapshot();
+        int[] winners = Scoreboard.winners(scores);
+        env.ui.announceWinner(winners);
+        // queued for the stats writer thread, never written here
+        for (StatsStore.PlayerResult result : stats.results(env.config.playerNames, scores, winners))
+            env.stats.record(result);
     }
-    int[] winners = new int[winnersList.size()];
-    for (int i = 0; i < winnersList.size(); i++) {
-        winners[i] = winnersList.get(i).id;
+
+    /**
+     * @return - the scores of all the players.
+     */
+    public Scoreboard scoreboard() {
+        return scoreboard;
     }
-    env.ui.announceWinner(winners);
-    
+
+    /**
+     * @return - the dealer's deck (for testing).
+     */
+    List<Integer> deck() {
+        return deck;
     }
 
+    /**
+     * @return - the hints of the current table.
+     */
+    public HintService hints() {
+        return hints;
+    }
 }
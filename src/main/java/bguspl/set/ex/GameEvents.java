@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the game lifecycle. Events are only recorded while a recording that enables them is
+ * running (e.g. java -XX:StartFlightRecording ...), and cost close to nothing otherwise. Each event spans the operation
+ * it describes, so it shows up next to the lock contention and GC events of the same threads.
+ */
+final class GameEvents {
+
+    private GameEvents() {}
+
+    @Name("bguspl.set.CardPlaced")
+    @Label("Card Placed")
+    @Category({"Set Game", "Table"})
+    static final class CardPlaced extends Event {
+        @Label("Card")
+        int card;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.CardRemoved")
+    @Label("Card Removed")
+    @Category({"Set Game", "Table"})
+    static final class CardRemoved extends Event {
+        @Label("Card")
+        int card;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.SlotsReplaced")
+    @Label("Slots Replaced")
+    @Description("Several cards replaced at once (e.g. the cards of a set that was found)")
+    @Category({"Set Game", "Table"})
+    static final class SlotsReplaced extends Event {
+        @Label("Slots")
+        int slots;
+
+        @Label("Cards Placed")
+        int cards;
+    }
+
+    @Name("bguspl.set.TokenPlaced")
+    @Label("Token Placed")
+    @Category({"Set Game", "Table"})
+    static final class TokenPlaced extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.TokenRemoved")
+    @Label("Token Removed")
+    @Category({"Set Game", "Table"})
+    static final class TokenRemoved extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Slot")
+        int slot;
+    }
+
+    @Name("bguspl.set.SetClaim")
+    @Label("Set Claim")
+    @Description("From a player placing its last token until it gets the dealer's verdict")
+    @Category({"Set Game", "Player"})
+    static final class SetClaim extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Legal")
+        boolean legal;
+    }
+
+    @Name("bguspl.set.Verdict")
+    @Label("Verdict")
+    @Description("The dealer checking a claimed set")
+    @Category({"Set Game", "Dealer"})
+    static final class Verdict extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Legal")
+        boolean legal;
+    }
+
+    @Name("bguspl.set.Freeze")
+    @Label("Freeze")
+    @Description("A player frozen after a point or a penalty")
+    @Category({"Set Game", "Player"})
+    static final class Freeze extends Event {
+        @Label("Player")
+        int player;
+
+        @Label("Penalty")
+        boolean penalty;
+
+        @Label("Freeze Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long freezeMillis;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Description("The dealer returning all the cards on the table to the deck")
+    @Category({"Set Game", "Dealer"})
+    static final class Reshuffle extends Event {
+        @Label("Cards Returned")
+        int cards;
+
+        @Label("Deck Size")
+        int deckSize;
+    }
+}
@@ -0,0 +1,162 @@
+package bguspl.set.ex;
+
+import bguspl.set.StatsStore;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the statistics of every player during a single game: the legal and illegal sets they claimed, and their
+ * reaction times (the time from the table last changing to the dealer checking a claim). Used by the dealer thread
+ * only. A game resumed from a checkpoint carries on with the statistics saved in it, so it is recorded as one game.
+ */
+class GameStats {
+
+    /**
+     * The number of bytes the statistics take in a checkpoint: the start and play time, then per player the sets,
+     * penalties and reactions, and the total and longest reaction time.
+     */
+    static int bytes(int players) {
+        return 8 + 8 + players * (4 + 4 + 4 + 8 + 8);
+    }
+
+    /**
+     * When the game started (epoch milliseconds), identifying it across resumes.
+     */
+    private long startMillis = System.currentTimeMillis();
+
+    /**
+     * The time the game was played before this run (resumed games), and when this run started.
+     */
+    private long playedMillis;
+    private final long runStartMillis = System.currentTimeMillis();
+
+    private final int[] sets;
+    private final int[] penalties;
+    private final int[] reactions;
+    private final long[] reactionTotalNanos;
+    private final long[] reactionMaxNanos;
+
+    /**
+     * The time the cards on the table last changed.
+     */
+    private long tableChangedNanos = System.nanoTime();
+
+    /**
+     * @param players - the number of players.
+     */
+    GameStats(int players) {
+        sets = new int[players];
+        penalties = new int[players];
+        reactions = new int[players];
+        reactionTotalNanos = new long[players];
+        reactionMaxNanos = new long[players];
+    }
+
+    /**
+     * Called whenever cards are placed on the table.
+     */
+    void tableChanged() {
+        tableChangedNanos = System.nanoTime();
+    }
+
+    /**
+     * Called when the dealer checks a claimed set.
+     *
+     * @param player - the player that claimed the set.
+     * @param legal  - true iff the set is legal.
+     */
+    void verdict(int player, boolean legal) {
+        long reaction = System.nanoTime() - tableChangedNanos;
+        if (legal) ++sets[player];
+        else ++penalties[player];
+        ++reactions[player];
+        reactionTotalNanos[player] += reaction;
+        reactionMaxNanos[player] = Math.max(reactionMaxNanos[player], reaction);
+    }
+
+    /**
+     * @return - the time the game was played so far, not counting the time it was not running.
+     */
+    private long gameMillis() {
+        return playedMillis + System.currentTimeMillis() - runStartMillis;
+    }
+
+    /**
+     * Writes the statistics to a checkpoint.
+     *
+     * @param buffer - the checkpoint buffer (with at least {@link #bytes} bytes remaining).
+     */
+    void put(ByteBuffer buffer) {
+        buffer.putLong(startMillis).putLong(gameMillis());
+        for (int player = 0; player < sets.length; ++player)
+            buffer.putInt(sets[player]).putInt(penalties[player]).putInt(reactions[player])
+                    .putLong(reactionTotalNanos[player]).putLong(reactionMaxNanos[player]);
+    }
+
+    /**
+     * Reads the statistics from a checkpoint.
+     *
+     * @param buffer  - the checkpoint buffer.
+     * @param players - the number of players.
+     * @return - the statistics, as a game that was played for the saved time so far.
+     */
+    static GameStats get(ByteBuffer buffer, int players) {
+        GameStats stats = new GameStats(players);
+        stats.startMillis = buffer.getLong();
+        stats.playedMillis = buffer.getLong();
+        for (int player = 0; player < players; ++player) {
+            stats.sets[player] = buffer.getInt();
+            stats.penalties[player] = buffer.getInt();
+            stats.reactions[player] = buffer.getInt();
+            stats.reactionTotalNanos[player] = buffer.getLong();
+            stats.reactionMaxNanos[player] = buffer.getLong();
+        }
+        return stats;
+    }
+
+    /**
+     * @return - a copy of the statistics so far, for a checkpoint written by another thread.
+     */
+    GameStats copy() {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes(sets.length));
+        put(buffer);
+        buffer.flip();
+        return get(buffer, sets.length);
+    }
+
+    /**
+     * Carries on with the statistics of a resumed game.
+     *
+     * @param saved - the statistics saved in the checkpoint.
+     */
+    void restore(GameStats saved) {
+        startMillis = saved.startMillis;
+        playedMillis = saved.playedMillis;
+        System.arraycopy(saved.sets, 0, sets, 0, sets.length);
+        System.arraycopy(saved.penalties, 0, penalties, 0, penalties.length);
+        System.arraycopy(saved.reactions, 0, reactions, 0, reactions.length);
+        System.arraycopy(saved.reactionTotalNanos, 0, reactionTotalNanos, 0, reactionTotalNanos.length);
+        System.arraycopy(saved.reactionMaxNanos, 0, reactionMaxNanos, 0, reactionMaxNanos.length);
+    }
+
+    /**
+     * @param names   - the names of the players.
+     * @param scores  - the final scores.
+     * @param winners - the winners.
+     * @return - the results of every player in the game.
+     */
+    List<StatsStore.PlayerResult> results(String[] names, int[] scores, int[] winners) {
+        long gameMillis = gameMillis();
+        List<StatsStore.PlayerResult> results = new ArrayList<>(scores.length);
+        for (int player = 0; player < scores.length; ++player) {
+            boolean won = false;
+            for (int winner : winners) won |= winner == player;
+            results.add(new StatsStore.PlayerResult(startMillis, gameMillis, player, names[player], scores[player],
+                    sets[player], penalties[player], reactions[player], reactionTotalNanos[player] / 1000,
+                    reactionMaxNanos[player] / 1000, won));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,172 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Computes the sets that are on the table (the hints) on a background thread, so the dealer never waits for the
+ * search. The hints are logged and passed to the listeners (no user interface shows them). Hints are keyed by the
+ * table version: they are computed once per table state and served from the cache until the table changes. Nothing
+ * is computed while hints are disabled in the current configuration (the thread is only created once they are first
+ * enabled).
+ */
+public class HintService {
+
+    /**
+     * Listens for new hints.
+     */
+    public interface Listener {
+        /**
+         * Called on the hints thread whenever the hints of a new table state are ready.
+         *
+         * @param version - the table version the hints belong to.
+         * @param sets    - the slots of every set on the table (each array is sorted).
+         */
+        void hintsChanged(long version, List<int[]> sets);
+    }
+
+    /**
+     * The hints of a single table state.
+     */
+    private static final class Hints {
+        final long version;
+        final List<int[]> sets;
+
+        Hints(long version, List<int[]> sets) {
+            this.version = version;
+            this.sets = sets;
+        }
+    }
+
+    private final Env env;
+    private final Table table;
+
+    /**
+     * The thread computing the hints (null until hints are first enabled).
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * True iff the service was shut down.
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * The hints of the last table state that was computed.
+     */
+    private volatile Hints cached = new Hints(-1, Collections.emptyList());
+
+    /**
+     * The last table version hints were requested for (accessed by the dealer thread only).
+     */
+    private long requested = -1;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param env   - the game environment objects.
+     * @param table - the table to compute hints for.
+     */
+    public HintService(Env env, Table table) {
+        this.env = env;
+        this.table = table;
+    }
+
+    /**
+     * @return - the thread computing the hints (created on first use, accessed by the dealer thread only).
+     */
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "hints");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (shutdown) executor.shutdownNow(); // shut down meanwhile
+        }
+        return executor;
+    }
+
+    /**
+     * Called by the dealer after changing the table. Schedules computing the hints of the current table state,
+     * unless they were already requested. Never blocks.
+     */
+    public void tableChanged() {
+        if (shutdown || !env.currentConfig().hints) return;
+        long version = table.version();
+        if (version == requested) return;
+        requested = version;
+        try {
+            executor().execute(this::compute);
+        } catch (RejectedExecutionException ignored) {} // shut down
+    }
+
+    /**
+     * Computes the hints of the current table state. A state that changes while it is read is skipped, since the
+     * dealer will request the newer one.
+     */
+    private void compute() {
+        long version = table.version();
+        if (cached.version == version) return;
+
+        List<Integer> cards = new ArrayList<>(env.config.tableSize);
+        for (Integer card : table.slotToCard)
+            if (card != null) cards.add(card);
+        if (table.version() != version) return;
+
+        List<int[]> sets = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        for (int[] set : env.util.findSets(cards, Integer.MAX_VALUE)) {
+            int[] slots = new int[set.length];
+            for (int i = 0; i < set.length; ++i) {
+                Integer slot = table.cardToSlot[set[i]];
+                if (slot == null) return; // the table changed meanwhile
+                slots[i] = slot;
+            }
+            Arrays.sort(slots);
+            sets.add(slots);
+            lines.add("hint: set found: slots: " + Arrays.toString(slots) + " features: "
+                    + Arrays.deepToString(env.util.cardsToFeatures(set)));
+        }
+        if (table.version() != version) return;
+
+        cached = new Hints(version, Collections.unmodifiableList(sets));
+        for (String line : lines) env.logger.info(line);
+        for (Listener listener : listeners) listener.hintsChanged(version, cached.sets);
+    }
+
+    /**
+     * @return - the slots of every set on the table, or an empty list if the hints of the current table state are
+     * not ready yet (or hints are disabled).
+     */
+    public List<int[]> hints() {
+        Hints hints = cached;
+        return hints.version == table.version() ? hints.sets : Collections.emptyList();
+    }
+
+    /**
+     * Registers a listener for new hints.
+     *
+     * @param listener - the listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops computing hints.
+     */
+    public void shutdown() {
+        shutdown = true;
+        ExecutorService executor = this.executor;
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -3,9 +3,15 @@ package bguspl.set.ex;
 import java.util.LinkedList;
 import java.util.Queue;
 import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 /**
  * This class manages the players' threads and data
  *
@@ -32,12 +38,12 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
+     * The next scheduled key press of the AI (computer) player (runs on the dealer's shared computer scheduler).
      */
-    private Thread aiThread;
+    private volatile ScheduledFuture<?> aiTask;
 
     /**
      * True iff the player is human (not a computer player).
@@ -45,21 +51,29 @@ public class Player implements Runnable {
     private final boolean human;
 
     /**
-     * True iff game should be terminated.
+     * The terminate and penalized flags (padded, since they are written by different threads).
      */
-    private volatile boolean terminate;
+    private final PlayerFlags flags = new PlayerFlags();
 
     /**
-     * The current score of the player.
+     * The scores of all the players (shared with the dealer).
      */
-    private int score;
+    private final Scoreboard scoreboard;
+
+    /**
+     * Metrics: the time from a key press to its token being placed or removed, the time from claiming a set to
+     * getting the dealer's verdict, and the key presses dropped because too many were pending.
+     */
+    private final LatencyHistogram keyPressLatency;
+    private final LatencyHistogram claimLatency;
+    private final LongAdder droppedKeyPresses;
 
     //fields we added
-    private BlockingQueue<Integer> actionQueue;
+    private static final int MAX_PENDING_ACTIONS = 3;
+    private final SlotQueue actionQueue;
     private Dealer dealer;
     public Object playerKey;
     protected BlockingQueue<Boolean> isSet;
-    private volatile boolean penalized;
 
 
     /**
@@ -76,10 +90,14 @@ public class Player implements Runnable {
         this.table = table;
         this.id = id;
         this.human = human;
-        this.actionQueue = new LinkedBlockingQueue<>();
+        this.actionQueue = new SlotQueue(MAX_PENDING_ACTIONS);
         this.dealer = dealer;
+        this.scoreboard = dealer.scoreboard();
         this.playerKey = new Object();
         this.isSet = new LinkedBlockingQueue<>();
+        this.keyPressLatency = env.metrics.histogram("player.keyPressToToken");
+        this.claimLatency = env.metrics.histogram("player.claimToVerdict");
+        this.droppedKeyPresses = env.metrics.counter("player.droppedKeyPresses");
     }
 
     /**
@@ -91,71 +109,85 @@ public class Player implements Runnable {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         if (!human) createArtificialIntelligence();
         
-        while (!terminate) {
-            while (!actionQueue.isEmpty()) {
-                int slot = actionQueue.poll();
-                boolean found = false;
-                for(int i = 0 ; i < 3 && !found ; i++){
-                    if (this.table.playerTokens[this.id][i] == slot)
-                    found = true; 
+        while (!flags.terminate) {
+            int slot;
+            try {
+                slot = actionQueue.take();
+            } catch (InterruptedException e) {
+                continue; // terminated, or a stale interrupt from the dealer
+            }
+            if(table.hasToken(id, slot)) {
+                table.removeToken(id, slot);
+                keyPressLatency.recordSince(actionQueue.lastOfferNanos());
+            }
+            else{
+                table.placeToken(id, slot);
+                keyPressLatency.recordSince(actionQueue.lastOfferNanos());
+                if(table.numOfTokens(id) == Table.MAX_TOKENS){
+                    long claimed = System.nanoTime();
+                    GameEvents.SetClaim claim = new GameEvents.SetClaim();
+                    claim.begin();
+                    synchronized(dealer){
+                    dealer.playerSetCompleteQueue.offer(id);
+                    synchronized (dealer.dealerWake) {
+                    dealer.dealerWake.notify();
+                    } }
+                    boolean answerSet = false;
+                    try{
+                        answerSet = isSet.take();
+                        claimLatency.recordSince(claimed);
+                        claim.player = id;
+                        claim.legal = answerSet;
+                        claim.commit();
+
+                        if(answerSet)
+                            point();
+                        else
+                            penalty();
+                          
+                    }  
+                    catch(InterruptedException e) {}
+                                          
                 }
-                if(found)
-                    table.removeToken(id, slot);
-                else{
-                    table.placeToken(id, slot);
-                    if(table.numOfTokens[id] == 3){
-                        synchronized(dealer){
-                        dealer.playerSetCompleteQueue.offer(id);
-                        synchronized (dealer.dealerWake) {
-                        dealer.dealerWake.notify();
-                        } }
-                        boolean answerSet = false;
-                        try{
-                            answerSet = isSet.take();
-                        
-                            if(answerSet)
-                                point();
-                            else
-                                penalty();
-                              
-                        }  
-                        catch(InterruptedException e) {}
-                                              
-                    }
-                } 
-          }        
+            } 
         }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        if (!human && aiTask != null) aiTask.cancel(false);
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");    
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Starts generating key presses for an AI (computer) player. Instead of a thread per player, each key press is a
+     * task on the dealer's shared computer scheduler, and it schedules the next one after the strategy's think time.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                int randomSlot = (int) (Math.random() * env.config.tableSize);
-                keyPressed(randomSlot);
+        Strategy strategy = Strategy.create(env, table, id);
+        ScheduledExecutorService scheduler = dealer.computerScheduler();
+        Runnable step = new Runnable() {
+            @Override
+            public void run() {
+                if (flags.terminate) return;
+                int slot = strategy.nextSlot();
+                if (slot >= 0) keyPressed(slot);
                 try {
-                    synchronized (this) { wait(20); }
-                } catch (InterruptedException ignored) {}
+                    if (!flags.terminate)
+                        aiTask = scheduler.schedule(this, strategy.thinkTimeMillis(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException ignored) {} // the dealer shut the scheduler down
             }
-            env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        };
+        try {
+            aiTask = scheduler.schedule(step, strategy.thinkTimeMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {} // the game was terminated before it started
     }
 
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
-        terminate = true;
-        Thread.currentThread().interrupt();
-        
+        flags.terminate = true;
+        ScheduledFuture<?> task = aiTask;
+        if (task != null) task.cancel(false);
+        Thread thread = playerThread;
+        if (thread != null) thread.interrupt(); // wake the player if it waits for a key press
     }
 
     /**
@@ -164,38 +196,46 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {  
-        if (actionQueue.size() < 3 && table.slotToCard[slot] != null && !penalized)
-            actionQueue.offer(slot);
+        if (table.slotToCard[slot] != null && !flags.penalized && !actionQueue.offer(slot))
+            droppedKeyPresses.increment(); // MAX_PENDING_ACTIONS presses are already pending
     }
 
     /**
-     * Award a point to a player and perform other related actions.
+     * Shows a point the dealer awarded to the player and freezes the player.
      *
-     * @post - the player's score is increased by 1.
+     * @pre - the dealer already added the point to the scoreboard (when it checked the set).
      * @post - the player's score is updated in the ui.
      */
     public void point() {
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, ++score);
-        long freezeTime = env.config.pointFreezeMillis;
-        penalized = true;
+        env.ui.setScore(id, scoreboard.score(id));
+        long freezeTime = env.currentConfig().pointFreezeMillis;
+        GameEvents.Freeze event = new GameEvents.Freeze();
+        event.begin();
+        flags.penalized = true;
         env.ui.setFreeze(this.id, freezeTime);
         try {
             Thread.sleep(freezeTime);
         } 
         catch (InterruptedException e) {}
         env.ui.setFreeze(this.id, 0);
-        penalized = false;
+        flags.penalized = false;
+        event.player = id;
+        event.freezeMillis = freezeTime;
+        event.commit();
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        long remainingTime = env.config.penaltyFreezeMillis;
+        long freezeTime = env.currentConfig().penaltyFreezeMillis;
+        long remainingTime = freezeTime;
         long decrementInterval = 1000;
+        GameEvents.Freeze event = new GameEvents.Freeze();
+        event.begin();
         env.ui.setFreeze(this.id, remainingTime);
-        penalized = true;
+        flags.penalized = true;
         while (remainingTime > 0) {
             try {
                 Thread.sleep(decrementInterval);
@@ -203,11 +243,22 @@ public class Player implements Runnable {
             remainingTime = remainingTime - decrementInterval;
             env.ui.setFreeze(this.id, remainingTime);
         }
-        penalized = false;
+        flags.penalized = false;
+        event.player = id;
+        event.penalty = true;
+        event.freezeMillis = freezeTime;
+        event.commit();
     }
 
     public int score() {
-        return score;
+        return scoreboard.score(id);
+    }
+
+    /**
+     * @return - the number of key presses waiting to be handled.
+     */
+    int pendingKeyPresses() {
+        return actionQueue.size();
     }
 
     public int getId() {
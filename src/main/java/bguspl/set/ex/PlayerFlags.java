@@ -0,0 +1,30 @@
+package bguspl.set.ex;
+
+/**
+ * The volatile flags of a player, which are written by the dealer and player threads, padded on both sides so that
+ * the flags of different players never share a cache line.
+ * The JVM orders fields within a class by size, so the padding is split between a superclass and a subclass (whose
+ * fields are always laid out before and after the flags respectively).
+ */
+final class PlayerFlags extends PlayerFlagsFields {
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15, p16;
+}
+
+class PlayerFlagsPadding {
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7, p8;
+}
+
+class PlayerFlagsFields extends PlayerFlagsPadding {
+
+    /**
+     * True iff game should be terminated.
+     */
+    volatile boolean terminate;
+
+    /**
+     * True iff the player is frozen (after a point or a penalty) and key presses are ignored.
+     */
+    volatile boolean penalized;
+}
@@ -0,0 +1,29 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Presses random slots (mostly exercises the penalty path).
+ */
+class RandomStrategy implements Strategy {
+
+    private final Env env;
+    private final ThinkTime thinkTime;
+
+    RandomStrategy(Env env, ThinkTime thinkTime) {
+        this.env = env;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public int nextSlot() {
+        return ThreadLocalRandom.current().nextInt(env.config.tableSize);
+    }
+
+    @Override
+    public long thinkTimeMillis() {
+        return thinkTime.next();
+    }
+}
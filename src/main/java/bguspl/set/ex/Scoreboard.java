@@ -0,0 +1,164 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Holds the scores of all the players. Scores are updated atomically by the dealer thread and can be read at any
+ * time from any thread without locking.
+ * Each score lives in its own 128 byte stretch of the array, and so does the version counter, so players scoring at
+ * the same time do not invalidate each other's cache lines.
+ *
+ * @inv score(player) >= 0
+ */
+public class Scoreboard {
+
+    /**
+     * Listens for score changes.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that changed the score, after the change.
+         *
+         * @param player - the player id.
+         * @param score  - the new score.
+         */
+        void scoreChanged(int player, int score);
+    }
+
+    /**
+     * The distance (in ints) between two scores in the array: 128 bytes covers a cache line and its prefetch pair.
+     */
+    private static final int STRIDE = 32;
+
+    /**
+     * The same distance in longs.
+     */
+    private static final int LONG_STRIDE = 16;
+
+    /**
+     * How many times a snapshot is retried when scores change while it is taken.
+     */
+    private static final int SNAPSHOT_RETRIES = 8;
+
+    private final int players;
+    private final AtomicIntegerArray scores;
+
+    /**
+     * Incremented after every score change (used to detect changes during a snapshot). The counter is the only element
+     * of the array in use, with a stride of padding on both sides.
+     */
+    private final AtomicLongArray version = new AtomicLongArray(2 * LONG_STRIDE + 1);
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param players - the number of players.
+     */
+    public Scoreboard(int players) {
+        this.players = players;
+        // one stride of padding before the first score keeps it away from the array header
+        this.scores = new AtomicIntegerArray((players + 1) * STRIDE);
+    }
+
+    private static int index(int player) {
+        return (player + 1) * STRIDE;
+    }
+
+    /**
+     * @return - the number of players.
+     */
+    public int players() {
+        return players;
+    }
+
+    /**
+     * Adds a point to a player.
+     *
+     * @param player - the player id.
+     * @return - the player's new score.
+     */
+    public int increment(int player) {
+        int score = scores.incrementAndGet(index(player));
+        version.incrementAndGet(LONG_STRIDE);
+        for (Listener listener : listeners) listener.scoreChanged(player, score);
+        return score;
+    }
+
+    /**
+     * Sets a player's score (e.g. when a game is resumed from a checkpoint).
+     *
+     * @param player - the player id.
+     * @param score  - the score.
+     */
+    void set(int player, int score) {
+        scores.set(index(player), score);
+        version.incrementAndGet(LONG_STRIDE);
+        for (Listener listener : listeners) listener.scoreChanged(player, score);
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the player's current score.
+     */
+    public int score(int player) {
+        return scores.get(index(player));
+    }
+
+    /**
+     * Reads all the scores. The read is retried (a bounded number of times) if a score changes meanwhile, so the
+     * result is a state the scoreboard was actually in unless the scores keep changing.
+     *
+     * @return - the score of every player, by player id.
+     */
+    public int[] snapshot() {
+        int[] snapshot = new int[players];
+        for (int attempt = 0; ; ++attempt) {
+            long before = version.get(LONG_STRIDE);
+            for (int player = 0; player < players; ++player)
+                snapshot[player] = scores.get(index(player));
+            if (version.get(LONG_STRIDE) == before || attempt == SNAPSHOT_RETRIES) return snapshot;
+        }
+    }
+
+    /**
+     * @return - the player ids ranked by score (highest first, ties by id), from a single snapshot.
+     */
+    public int[] leaderboard() {
+        int[] snapshot = snapshot();
+        return IntStream.range(0, players).boxed()
+                .sorted(Comparator.<Integer>comparingInt(player -> -snapshot[player])
+                        .thenComparingInt(player -> player))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return - the ids of the players with the highest score, from a single snapshot.
+     */
+    public int[] winners() {
+        return winners(snapshot());
+    }
+
+    /**
+     * @param scores - the score of every player (e.g. a snapshot).
+     * @return - the ids of the players with the highest score.
+     */
+    public static int[] winners(int[] scores) {
+        int max = Arrays.stream(scores).max().orElse(0);
+        return IntStream.range(0, scores.length).filter(player -> scores[player] == max).toArray();
+    }
+
+    /**
+     * Registers a listener for score changes.
+     *
+     * @param listener - the listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+}
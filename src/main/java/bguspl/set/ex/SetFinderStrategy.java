@@ -0,0 +1,80 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Looks for a legal set among the cards on the table and presses its slots, one key per think time.
+ * Tokens the player has on other cards are removed first. A new set is chosen whenever a card of the current one
+ * leaves the table.
+ */
+class SetFinderStrategy implements Strategy {
+
+    private final Env env;
+    private final Table table;
+    private final int player;
+    private final ThinkTime thinkTime;
+
+    /**
+     * The cards of the set the player is currently claiming (null if none).
+     */
+    private int[] target;
+
+    SetFinderStrategy(Env env, Table table, int player, ThinkTime thinkTime) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        this.thinkTime = thinkTime;
+    }
+
+    @Override
+    public int nextSlot() {
+        if (target == null || !onTable(target)) target = findSet();
+        if (target == null) return -1;
+
+        // first take back tokens that are not on the target set
+        for (int i = 0; i < Table.MAX_TOKENS; ++i) {
+            int slot = table.tokenSlot(player, i);
+            if (slot >= 0 && !isTarget(table.slotToCard[slot])) return slot;
+        }
+
+        for (int card : target) {
+            Integer slot = table.cardToSlot[card];
+            if (slot != null && !table.hasToken(player, slot)) return slot;
+        }
+        return -1; // the whole set is marked, waiting for the dealer
+    }
+
+    @Override
+    public long thinkTimeMillis() {
+        return thinkTime.next();
+    }
+
+    private boolean onTable(int[] cards) {
+        for (int card : cards)
+            if (table.cardToSlot[card] == null) return false;
+        return true;
+    }
+
+    private boolean isTarget(Integer card) {
+        if (card == null) return false;
+        for (int targetCard : target)
+            if (targetCard == card) return true;
+        return false;
+    }
+
+    /**
+     * Finds a set on the table. The cards are shuffled so that computer players do not all race for the same set.
+     */
+    private int[] findSet() {
+        List<Integer> cards = new ArrayList<>(env.config.tableSize);
+        for (Integer card : table.slotToCard)
+            if (card != null) cards.add(card);
+        Collections.shuffle(cards);
+        List<int[]> sets = env.util.findSets(cards, 1);
+        return sets.isEmpty() ? null : sets.get(0);
+    }
+}
@@ -0,0 +1,71 @@
+package bguspl.set.ex;
+
+/**
+ * A fixed capacity queue of slots (a ring buffer of primitive ints), used for the pending key presses of a player.
+ * Offering never blocks or allocates, and fails atomically when the queue is full; taking blocks until a slot is
+ * available. The time each slot was offered is kept too, for measuring how long key presses wait.
+ */
+class SlotQueue {
+
+    private final int[] slots;
+    private final long[] offered;
+    private int head;
+    private int size;
+
+    /**
+     * The time (from System.nanoTime()) the last taken slot was offered.
+     */
+    private long lastOffered;
+
+    /**
+     * @param capacity - the maximum number of queued slots.
+     */
+    SlotQueue(int capacity) {
+        this.slots = new int[capacity];
+        this.offered = new long[capacity];
+    }
+
+    /**
+     * Adds a slot to the queue unless it is full.
+     *
+     * @param slot - the slot.
+     * @return - true iff the slot was added.
+     */
+    synchronized boolean offer(int slot) {
+        if (size == slots.length) return false;
+        slots[(head + size) % slots.length] = slot;
+        offered[(head + size) % slots.length] = System.nanoTime();
+        ++size;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Removes the oldest slot, waiting until there is one.
+     *
+     * @return - the slot.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    synchronized int take() throws InterruptedException {
+        while (size == 0) wait();
+        int slot = slots[head];
+        lastOffered = offered[head];
+        head = (head + 1) % slots.length;
+        --size;
+        return slot;
+    }
+
+    /**
+     * @return - the time (from System.nanoTime()) the slot last returned by take was offered.
+     */
+    synchronized long lastOfferNanos() {
+        return lastOffered;
+    }
+
+    /**
+     * @return - the number of queued slots.
+     */
+    synchronized int size() {
+        return size;
+    }
+}
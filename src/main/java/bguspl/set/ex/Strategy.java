@@ -0,0 +1,42 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * Chooses the key presses of a computer player.
+ */
+public interface Strategy {
+
+    /**
+     * Chooses the next slot to press.
+     *
+     * @return - the slot to press, or -1 to press nothing this time.
+     */
+    int nextSlot();
+
+    /**
+     * @return - the number of milliseconds to think before the next call to nextSlot (at least 1).
+     */
+    long thinkTimeMillis();
+
+    /**
+     * Creates the strategy configured by config.computerStrategy.
+     *
+     * @param env    - the environment object.
+     * @param table  - the table the player plays on.
+     * @param player - the id of the player.
+     * @return - the strategy.
+     */
+    static Strategy create(Env env, Table table, int player) {
+        ThinkTime thinkTime = new ThinkTime(env);
+        switch (env.config.computerStrategy) {
+            case "setfinder":
+                return new SetFinderStrategy(env, table, player, thinkTime);
+            case "random":
+                return new RandomStrategy(env, thinkTime);
+            default:
+                env.logger.severe("unknown computer strategy " + env.config.computerStrategy + ", using random.");
+                return new RandomStrategy(env, thinkTime);
+        }
+    }
+}
@@ -1,17 +1,17 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import bguspl.set.LatencyHistogram;
 
 /**
  * This class contains the data that is visible to the player.
+ * Cards and tokens are changed by the dealer and player threads at the same time, so every change is made holding
+ * the table's lock. Reads do not lock. Changes are instant: pacing them for the players' eyes (config.tableDelayMillis)
+ * is up to the user interface (see PacedUserInterface).
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ * @inv every token is on a slot that has a card
+ * @inv numOfTokens(player) == the number of slots the player has tokens on
  */
 public class Table {
 
@@ -31,14 +31,35 @@ public class Table {
     protected final Integer[] cardToSlot; // slot per card (if any)
     
     /**
-     * Mapping between a player and the slots that token putted there (-1 if none).
+     * The number of tokens each player can place.
      */
-    protected final Integer[][] playerTokens; // tokens per slot (if any)
-    
+    protected static final int MAX_TOKENS = 3;
+
     /**
-     * Mapping between a player and the num of tokens he already put (0 if none)
+     * The number of ints reserved for each player in tokens (128 bytes, i.e. a cache line and its prefetch pair).
      */
-    protected final Integer[] numOfTokens; 
+    private static final int TOKENS_STRIDE = 32;
+
+    /**
+     * The tokens of all players, one padded block per player so that players placing tokens at the same time do not
+     * invalidate each other's cache lines. A block holds the slots of the player's tokens (-1 if none) followed by the
+     * number of tokens the player placed.
+     */
+    private final int[] tokens;
+
+    /**
+     * Incremented whenever a card is placed or removed (written by the dealer thread only).
+     */
+    private volatile long version;
+
+    /**
+     * Metrics: the time each table operation takes.
+     */
+    private final LatencyHistogram placeCardTime;
+    private final LatencyHistogram removeCardTime;
+    private final LatencyHistogram replaceSlotsTime;
+    private final LatencyHistogram placeTokenTime;
+    private final LatencyHistogram removeTokenTime;
 
     /**
      * Constructor for testing.
@@ -52,18 +73,60 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        this.placeCardTime = env.metrics.histogram("table.placeCard");
+        this.removeCardTime = env.metrics.histogram("table.removeCard");
+        this.replaceSlotsTime = env.metrics.histogram("table.replaceSlots");
+        this.placeTokenTime = env.metrics.histogram("table.placeToken");
+        this.removeTokenTime = env.metrics.histogram("table.removeToken");
+
+        // one extra block before the first player keeps it away from the array header
+        this.tokens = new int[(env.config.players + 1) * TOKENS_STRIDE];
+        for (int player = 0; player < env.config.players; player++)
+            for (int i = 0; i < MAX_TOKENS; i++)
+                tokens[tokenIndex(player, i)] = -1;
+    }
 
+    private static int tokenIndex(int player, int i) {
+        return (player + 1) * TOKENS_STRIDE + i;
+    }
 
-        this.playerTokens = new Integer[env.config.players][3]; 
-        for (int i = 0; i < playerTokens.length; i++) {
-            for(int t = 0 ; t < 3 ; t++){
-                playerTokens[i][t] = -1;
-            }}
+    private static int countIndex(int player) {
+        return (player + 1) * TOKENS_STRIDE + MAX_TOKENS;
+    }
 
-        this.numOfTokens = new Integer[env.config.players];
-        for(int i = 0 ; i < env.config.players ; i++){
-            numOfTokens[i] = 0;
-        }
+    /**
+     * @param player - the player.
+     * @return - the number of tokens the player placed.
+     */
+    protected int numOfTokens(int player) {
+        return tokens[countIndex(player)];
+    }
+
+    /**
+     * @param player - the player.
+     * @param i      - the token index (0 to MAX_TOKENS - 1).
+     * @return - the slot of the player's i'th token (-1 if none).
+     */
+    protected int tokenSlot(int player, int i) {
+        return tokens[tokenIndex(player, i)];
+    }
+
+    /**
+     * @param player - the player.
+     * @param slot   - the slot.
+     * @return - true iff the player has a token on the slot.
+     */
+    protected boolean hasToken(int player, int slot) {
+        for (int i = 0; i < MAX_TOKENS; i++)
+            if (tokens[tokenIndex(player, i)] == slot) return true;
+        return false;
+    }
+
+    /**
+     * @return - the version of the cards on the table, which changes whenever a card is placed or removed.
+     */
+    public long version() {
+        return version;
     }
 
     /**
@@ -75,19 +138,6 @@ public class Table {
         this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
     }
 
-    /**
-     * This method prints all possible legal sets of cards that are currently on the table.
-     */
-    public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
-    }
-
     /**
      * Count the number of cards currently on the table.
      *
@@ -109,13 +159,21 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-        env.ui.placeCard(card, slot);
+        long start = System.nanoTime();
+        GameEvents.CardPlaced event = new GameEvents.CardPlaced();
+        event.begin();
+        synchronized (this) {
+            Integer replaced = slotToCard[slot];
+            if (replaced != null) cardToSlot[replaced] = null;
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+            version++;
+            env.ui.placeCard(card, slot);
+        }
+        placeCardTime.recordSince(start);
+        event.card = card;
+        event.slot = slot;
+        event.commit();
     }
 
     /**
@@ -123,30 +181,76 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-       
-        Integer card = slotToCard[slot];
-
-        for (int i = 0; i < playerTokens.length;i++)
-        {
-            for (int j = 0; j < numOfTokens[i]; j++) 
-            {
-                if (playerTokens[i][j] == slot)
-                    try {
-                        Thread.sleep(1);
-                    } 
-                    catch (InterruptedException ignored) {}
-                    removeToken(i,slot);
+        long start = System.nanoTime();
+        GameEvents.CardRemoved event = new GameEvents.CardRemoved();
+        event.begin();
+        Integer card;
+        synchronized (this) {
+            card = slotToCard[slot];
+            for (int player = 0; player < env.config.players; player++)
+                if (hasToken(player, slot)) removeToken(player, slot);
+
+            if (card != null) {
+                cardToSlot[card] = null;
+                slotToCard[slot] = null;
+                version++;
             }
+            env.ui.removeCard(slot);
         }
-        
-        if (card != null) {
-        cardToSlot[card] = null;
-        slotToCard[slot] = null;
+        removeCardTime.recordSince(start);
+        event.card = card != null ? card : -1;
+        event.slot = slot;
+        event.commit();
+    }
+
+    /**
+     * Replaces the cards in several slots at once: the tokens on the slots are removed, the old cards are taken off
+     * and the new ones placed, as a single change of the table. Players never see some of the slots replaced and
+     * others not. The user interface is told of each token removed before the cards are replaced, so that it never
+     * has to guess which tokens were on the old cards (it may show the change later, after new tokens were placed).
+     * @param slots    - the slots to replace.
+     * @param newCards - the card to place in each slot (-1 to leave it empty).
+     *
+     * @post - slotToCard[slots[i]] is newCards[i] (null if -1), and no player has a token on the slots.
+     */
+    public void replaceSlots(int[] slots, int[] newCards) {
+        long start = System.nanoTime();
+        GameEvents.SlotsReplaced event = new GameEvents.SlotsReplaced();
+        event.begin();
+        synchronized (this) {
+            for (int i = 0; i < slots.length; ++i) {
+                int slot = slots[i];
+                clearTokens(slot);
+                Integer replaced = slotToCard[slot];
+                if (replaced != null) cardToSlot[replaced] = null;
+                if (newCards[i] >= 0) {
+                    cardToSlot[newCards[i]] = slot;
+                    slotToCard[slot] = newCards[i];
+                    event.cards++;
+                } else {
+                    slotToCard[slot] = null;
+                }
+            }
+            version++;
+            env.ui.replaceCards(slots, newCards);
         }
-        env.ui.removeCard(slot);
+        replaceSlotsTime.recordSince(start);
+        event.slots = slots.length;
+        event.commit();
+    }
+
+    /**
+     * Takes all the tokens off a slot.
+     * @param slot - the slot.
+     */
+    private void clearTokens(int slot) {
+        for (int player = 0; player < env.config.players; player++)
+            for (int i = 0; i < MAX_TOKENS; i++)
+                if (tokens[tokenIndex(player, i)] == slot) {
+                    tokens[tokenIndex(player, i)] = -1;
+                    tokens[countIndex(player)]--;
+                    env.ui.removeToken(player, slot);
+                }
     }
 
     /**
@@ -154,14 +258,17 @@ public class Table {
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
      */
-    public void placeToken(int player, int slot) {
+    public synchronized void placeToken(int player, int slot) {
+        long start = System.nanoTime();
+        GameEvents.TokenPlaced event = new GameEvents.TokenPlaced();
+        event.begin();
         if(slotToCard[slot] != null ){
-            if(numOfTokens[player] < 3){
+            if(numOfTokens(player) < MAX_TOKENS){
             boolean placed = false;
             int i = 0;
             while (!placed){
-                if(playerTokens[player][i] == -1){
-                    playerTokens[player][i] = slot;
+                if(tokens[tokenIndex(player, i)] == -1){
+                    tokens[tokenIndex(player, i)] = slot;
                     placed = true ;
                 }
                 else{
@@ -169,8 +276,12 @@ public class Table {
                 }
                 }
 
-            numOfTokens[player]++;
+            tokens[countIndex(player)]++;
             env.ui.placeToken( player, slot) ;  
+            placeTokenTime.recordSince(start);
+            event.player = player;
+            event.slot = slot;
+            event.commit();
         }}}
         // need to check if need to print something if there no card there.
     
@@ -181,20 +292,27 @@ public class Table {
      * @param slot   - the slot from which to remove the token.
      * @return       - true iff a token was successfully removed.
      */
-    public boolean removeToken(int player, int slot) {
+    public synchronized boolean removeToken(int player, int slot) {
+         long start = System.nanoTime();
+         GameEvents.TokenRemoved event = new GameEvents.TokenRemoved();
+         event.begin();
          if(slotToCard[slot] != null ){
             boolean isThere = false ;
             int tokenIndex = -1;
-            for(int i = 0 ; !isThere && i < 3 ; i++){
-                if (playerTokens[player][i] == slot){
+            for(int i = 0 ; !isThere && i < MAX_TOKENS ; i++){
+                if (tokens[tokenIndex(player, i)] == slot){
                     isThere = true;
                     tokenIndex = i;
                 }
             }
             if(isThere){
-                playerTokens[player][tokenIndex] = -1;
-                numOfTokens[player]--;
+                tokens[tokenIndex(player, tokenIndex)] = -1;
+                tokens[countIndex(player)]--;
                 env.ui.removeToken(player, slot);
+                removeTokenTime.recordSince(start);
+                event.player = player;
+                event.slot = slot;
+                event.commit();
                 return true;
             }
             else{
@@ -0,0 +1,41 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws the think time of a computer player from the configured distribution (read from the current configuration
+ * on every draw).
+ */
+class ThinkTime {
+
+    private final Env env;
+
+    ThinkTime(Env env) {
+        this.env = env;
+    }
+
+    /**
+     * @return - the next think time in milliseconds (at least 1).
+     */
+    long next() {
+        Config config = env.currentConfig();
+        long mean = config.computerThinkMillis;
+        long jitter = config.computerThinkJitterMillis;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double millis;
+        switch (config.computerThinkDistribution) {
+            case "uniform":
+                millis = mean + (random.nextDouble() * 2 - 1) * jitter;
+                break;
+            case "gaussian":
+                millis = mean + random.nextGaussian() * jitter;
+                break;
+            default:
+                millis = mean;
+        }
+        return Math.max(1, Math.round(millis));
+    }
+}
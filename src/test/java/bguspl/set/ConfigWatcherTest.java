@@ -0,0 +1,107 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class ConfigWatcherTest {
+
+    private Path directory;
+    private Path file;
+    private Properties properties;
+    private Env env;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("config-watcher");
+        file = directory.resolve("config.properties");
+        properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        properties.put("PenaltyFreezeSeconds", "3");
+        write();
+        MockLogger logger = new MockLogger();
+        env = new Env(logger, new Config(logger, properties), mock(UserInterface.class), mock(Util.class));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    private void write() throws IOException {
+        try (OutputStream os = Files.newOutputStream(file)) {
+            properties.store(os, null);
+        }
+    }
+
+    @Test
+    void fileChanged_NewConfigurationPublished() throws IOException, InterruptedException {
+        try (ConfigWatcher watcher = new ConfigWatcher(env, file)) {
+            watcher.start();
+            properties.put("PenaltyFreezeSeconds", "0.5");
+            write();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (env.currentConfig().penaltyFreezeMillis != 500 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(500, env.currentConfig().penaltyFreezeMillis);
+            assertEquals(3000, env.config.penaltyFreezeMillis);
+        }
+    }
+
+    @Test
+    void turnTimeoutModeChanged_Ignored() throws IOException {
+        try (ConfigWatcher watcher = new ConfigWatcher(env, file)) {
+            properties.put("TurnTimeoutSeconds", "0");
+            write();
+            watcher.reload();
+            assertSame(env.config, env.currentConfig());
+
+            properties.put("TurnTimeoutSeconds", "30");
+            write();
+            watcher.reload();
+            assertEquals(30_000, env.currentConfig().turnTimeoutMillis);
+        }
+    }
+
+    @Test
+    void logLevelApplied_OnlyWhenAccepted() throws IOException {
+        env.logger.setLevel(Level.ALL);
+        try (ConfigWatcher watcher = new ConfigWatcher(env, file)) {
+            properties.put("LogLevel", "WARNING");
+            properties.put("TurnTimeoutSeconds", "0");
+            write();
+            watcher.reload();
+            assertSame(env.config, env.currentConfig());
+            assertEquals(Level.ALL, env.logger.getLevel());
+
+            properties.remove("TurnTimeoutSeconds");
+            write();
+            watcher.reload();
+            assertEquals(Level.WARNING, env.currentConfig().logLevel);
+            assertEquals(Level.WARNING, env.logger.getLevel());
+        }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
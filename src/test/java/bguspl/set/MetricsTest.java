@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    Metrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.close();
+    }
+
+    @Test
+    void histogram_PercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = metrics.histogram("latency");
+        for (long value = 1; value <= 1000; ++value)
+            histogram.record(value * 1000);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean());
+        for (double percentile : new double[]{50, 90, 99}) {
+            long expected = (long) (percentile * 10_000);
+            long actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected && actual <= expected * 1.07, percentile + ": " + actual);
+        }
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    void histogram_SmallValuesAreExact() {
+        LatencyHistogram histogram = metrics.histogram("latency");
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(7);
+
+        assertEquals(0, histogram.percentile(1));
+        assertEquals(3, histogram.percentile(50));
+        assertEquals(7, histogram.percentile(100));
+    }
+
+    @Test
+    void snapshot_IncludesAllMetricKinds() {
+        metrics.counter("claims").add(3);
+        metrics.gauge("queue", () -> 7);
+        metrics.histogram("loop").record(2_000);
+
+        SortedMap<String, Long> snapshot = metrics.snapshot();
+        assertEquals(3, (long) snapshot.get("claims"));
+        assertEquals(7, (long) snapshot.get("queue"));
+        assertEquals(1, (long) snapshot.get("loop.count"));
+        assertEquals(2, (long) snapshot.get("loop.maxMicros"));
+
+        metrics.reset();
+        assertEquals(0, (long) metrics.snapshot().get("claims"));
+        assertEquals(7, (long) metrics.snapshot().get("queue"));
+    }
+
+    @Test
+    void registerMBean_ExposesMetricsAsAttributes() throws JMException {
+        metrics.counter("claims").increment();
+        metrics.registerMBean();
+
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "claims"));
+
+        metrics.close();
+        assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
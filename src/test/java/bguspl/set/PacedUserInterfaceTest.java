@@ -0,0 +1,122 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class PacedUserInterfaceTest {
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Test
+    void cardChanges_ShownInOrderAfterTheirDelays() {
+        UserInterface ui = mock(UserInterface.class);
+        List<Long> shownNanos = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> shownNanos.add(System.nanoTime())).when(ui).placeCard(anyInt(), anyInt());
+        doAnswer(invocation -> shownNanos.add(System.nanoTime())).when(ui).removeCard(anyInt());
+        PacedUserInterface paced = new PacedUserInterface(ui, PacedUserInterface.Policy.fixed(50));
+
+        long start = System.nanoTime();
+        paced.placeCard(7, 1);
+        paced.removeCard(1);
+        paced.placeCard(8, 2);
+        assertTrue(millisSince(start) < 50, "the caller waited");
+
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).placeCard(7, 1);
+        order.verify(ui, timeout(5_000)).removeCard(1);
+        order.verify(ui, timeout(5_000)).placeCard(8, 2);
+        assertEquals(3, shownNanos.size());
+        long previous = start;
+        for (long shown : shownNanos) {
+            assertTrue((shown - previous) / 1_000_000 >= 50, "shown after " + (shown - previous) / 1_000_000);
+            previous = shown;
+        }
+        paced.dispose();
+    }
+
+    @Test
+    void otherChanges_ShownInOrderWithCardChanges() {
+        UserInterface ui = mock(UserInterface.class);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> threads.add(Thread.currentThread().getName())).when(ui).placeToken(anyInt(), anyInt());
+        PacedUserInterface paced = new PacedUserInterface(ui, PacedUserInterface.Policy.fixed(50));
+
+        long start = System.nanoTime();
+        paced.placeCard(7, 1);
+        paced.placeToken(0, 1);
+        paced.replaceCards(new int[]{1}, new int[]{8});
+        paced.placeToken(1, 1);
+        paced.setScore(0, 2);
+        paced.announceWinner(new int[]{0});
+        assertTrue(millisSince(start) < 50, "the caller waited");
+
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).placeCard(7, 1);
+        order.verify(ui, timeout(5_000)).placeToken(0, 1);
+        order.verify(ui, timeout(5_000)).replaceCards(new int[]{1}, new int[]{8});
+        order.verify(ui, timeout(5_000)).placeToken(1, 1);
+        order.verify(ui, timeout(5_000)).setScore(0, 2);
+        order.verify(ui, timeout(5_000)).announceWinner(new int[]{0});
+        assertEquals(Arrays.asList("paced-ui", "paced-ui"), threads);
+        paced.dispose();
+    }
+
+    @Test
+    void dispose_DoesNotWaitForTheChangesStillBeingPaced() {
+        UserInterface ui = mock(UserInterface.class);
+        PacedUserInterface paced = new PacedUserInterface(ui, PacedUserInterface.Policy.fixed(10_000));
+
+        long start = System.nanoTime();
+        paced.placeCard(7, 1);
+        paced.placeToken(0, 1);
+        paced.dispose();
+        assertTrue(millisSince(start) < 5_000, "elapsed " + millisSince(start));
+        verify(ui).dispose();
+        verify(ui, never()).placeCard(7, 1);
+        verify(ui, never()).placeToken(0, 1);
+    }
+
+    @Test
+    void replaceCards_WaitsForTheLongestDelaysOfTheBatch() {
+        UserInterface ui = mock(UserInterface.class);
+        PacedUserInterface paced = new PacedUserInterface(ui, new PacedUserInterface.Policy() {
+            @Override
+            public long placeCardMillis(int card, int slot) {
+                return card == 5 ? 100 : 0;
+            }
+
+            @Override
+            public long removeCardMillis(int slot) {
+                return slot == 2 ? 200 : 0;
+            }
+        });
+        long[] shownAfterMillis = new long[1];
+        long start = System.nanoTime();
+        doAnswer(invocation -> shownAfterMillis[0] = millisSince(start)).when(ui).replaceCards(any(), any());
+
+        int[] slots = {0, 2}, cards = {4, 5};
+        paced.replaceCards(slots, cards);
+        slots[1] = cards[1] = -1; // the caller may reuse the arrays
+
+        verify(ui, timeout(5_000)).replaceCards(new int[]{0, 2}, new int[]{4, 5});
+        assertTrue(shownAfterMillis[0] >= 300, "shown after " + shownAfterMillis[0]);
+        paced.dispose();
+    }
+}
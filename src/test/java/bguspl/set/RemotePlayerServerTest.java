@@ -0,0 +1,145 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RemotePlayerServerTest {
+
+    RemotePlayerServer server;
+    @Mock
+    Player player0;
+    @Mock
+    Player player1;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "2");
+        properties.put("SpectatorTickSeconds", "0.01");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        SpectatorServerTest.MockLogger logger = new SpectatorServerTest.MockLogger();
+        Player[] players = {player0, player1};
+        server = new RemotePlayerServer(logger, new Config(logger, properties), players, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.dispose();
+    }
+
+    /**
+     * A local stand-in for a remote player's client.
+     */
+    static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final OutputStream out;
+
+        Client(RemotePlayerServer server) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(5000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = socket.getOutputStream();
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        /**
+         * Skips state stream lines and returns the next reply to a request.
+         */
+        String reply() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null)
+                if (line.startsWith("joined") || line.startsWith("error")) return line;
+            throw new AssertionError("stream ended before a reply");
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    void keysAreDispatchedToTheJoinedPlayer() throws IOException {
+        try (Client client = new Client(server)) {
+            client.send("join 1");
+            assertEquals("joined 1", client.reply());
+            client.send("key 3");
+            client.send("key 0");
+
+            verify(player1, timeout(5000)).keyPressed(3);
+            verify(player1, timeout(5000)).keyPressed(0);
+            verify(player0, never()).keyPressed(3);
+        }
+    }
+
+    @Test
+    void playerCanOnlyBeJoinedOnce() throws IOException {
+        try (Client first = new Client(server); Client second = new Client(server)) {
+            first.send("join 0");
+            assertEquals("joined 0", first.reply());
+            second.send("join 0");
+            assertEquals("error player taken", second.reply());
+        }
+    }
+
+    @Test
+    void playerIsReleasedOnDisconnect() throws IOException {
+        try (Client first = new Client(server)) {
+            first.send("join 0");
+            assertEquals("joined 0", first.reply());
+        }
+        try (Client second = new Client(server)) {
+            String reply;
+            do {
+                second.send("join 0");
+                reply = second.reply();
+            } while (reply.equals("error player taken")); // the server may not have seen the disconnect yet
+            assertEquals("joined 0", reply);
+        }
+    }
+
+    @Test
+    void invalidRequestsAreRejected() throws IOException {
+        try (Client client = new Client(server)) {
+            client.send("key 1");
+            assertEquals("error not joined", client.reply());
+            client.send("join 7");
+            assertEquals("error no such human player", client.reply());
+            client.send("join 0");
+            assertEquals("joined 0", client.reply());
+            client.send("key 4");
+            assertEquals("error no such slot", client.reply());
+            client.send("fold");
+            assertEquals("error unknown request", client.reply());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectatorServerTest {
+
+    SpectatorServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("SpectatorTickSeconds", "0.01");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        MockLogger logger = new MockLogger();
+        server = new SpectatorServer(logger, new Config(logger, properties), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.dispose();
+    }
+
+    private static Socket connect(SpectatorServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private static void readUntil(BufferedReader in, String expected) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null)
+            if (line.equals(expected)) return;
+        throw new AssertionError("stream ended before: " + expected);
+    }
+
+    @Test
+    void listensOnLoopbackByDefault() {
+        assertTrue(server.getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    void newClientReceivesSnapshot() throws IOException {
+        server.placeCard(7, 3);
+        server.setScore(1, 2);
+
+        try (Socket socket = connect(server)) {
+            BufferedReader in = reader(socket);
+            assertEquals("reset", in.readLine());
+            readUntil(in, "card 3 7");
+            readUntil(in, "score 1 2");
+        }
+    }
+
+    @Test
+    void allClientsReceiveDeltas() throws IOException {
+        try (Socket first = connect(server); Socket second = connect(server)) {
+            BufferedReader firstIn = reader(first);
+            BufferedReader secondIn = reader(second);
+            readUntil(firstIn, "reset");
+            readUntil(secondIn, "reset");
+
+            server.placeToken(0, 2);
+            server.setCountdown(5000, false);
+
+            readUntil(firstIn, "token 0 2");
+            readUntil(secondIn, "token 0 2");
+            readUntil(firstIn, "countdown 5000 false");
+            readUntil(secondIn, "countdown 5000 false");
+        }
+    }
+
+    @Test
+    void disposeSendsLastEventsAndDisconnects() throws IOException {
+        try (Socket socket = connect(server)) {
+            BufferedReader in = reader(socket);
+            readUntil(in, "reset");
+
+            server.announceWinner(new int[]{0, 1});
+            server.dispose();
+
+            readUntil(in, "winner 0 1");
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void sinkThatFellBehind_IsResynchronized() throws IOException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        multiplexer.addSink("spectators", server, 2, UserInterfaceMultiplexer.OverflowPolicy.RESYNC);
+        synchronized (server) { // holds the sink's dispatcher up
+            multiplexer.placeCard(4, 0);
+            multiplexer.placeCard(5, 1);
+            multiplexer.placeToken(0, 1);
+            multiplexer.placeToken(1, 1);
+            multiplexer.removeToken(1, 1);
+            multiplexer.setScore(0, 3);
+        }
+        multiplexer.setScore(1, 9);
+        assertTrue(multiplexer.droppedEvents() > 0);
+
+        List<String> lines = new ArrayList<>();
+        try (Socket socket = connect(server)) {
+            BufferedReader in = reader(socket);
+            String line;
+            while (!"score 1 9".equals(line = in.readLine())) {
+                assertNotNull(line);
+                lines.add(line);
+            }
+        }
+        assertTrue(lines.containsAll(Arrays.asList("card 0 4", "card 1 5", "token 0 1", "score 0 3")), lines::toString);
+        assertFalse(lines.contains("token 1 1"), lines::toString);
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
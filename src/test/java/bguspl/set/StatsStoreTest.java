@@ -0,0 +1,108 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsStoreTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("stats-store");
+        file = directory.resolve("stats").resolve("player-stats.tsv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+        Files.deleteIfExists(directory);
+    }
+
+    private static StatsStore.PlayerResult result(String name, int sets, int penalties, boolean won) {
+        return new StatsStore.PlayerResult(1000, 60_000, 0, name, sets, sets, penalties, sets + penalties,
+                (sets + penalties) * 2000L, 3000, won);
+    }
+
+    @Test
+    void recordedResults_Summarized() throws IOException, InterruptedException {
+        try (StatsStore store = new StatsStore(new MockLogger(), file)) {
+            store.record(result("Meni", 3, 1, true));
+            store.record(result("Marina", 2, 0, false));
+            store.record(result("Meni", 1, 2, false));
+            assertTrue(store.flush(5_000));
+
+            StatsStore.Summary meni = store.summary("Meni");
+            assertEquals(2, meni.games);
+            assertEquals(1, meni.wins);
+            assertEquals(4, meni.sets);
+            assertEquals(3, meni.penalties);
+            assertEquals(2000, meni.meanReactionMicros());
+            assertNull(store.summary("Nobody"));
+
+            List<StatsStore.Summary> summaries = store.summaries();
+            assertEquals("Meni", summaries.get(0).name);
+            assertEquals("Marina", summaries.get(1).name);
+        }
+    }
+
+    @Test
+    void recordedWhileClosing_EveryQueuedResultWritten() throws IOException, InterruptedException {
+        for (int round = 0; round < 20; ++round) {
+            StatsStore store = new StatsStore(new MockLogger(), file);
+            CountDownLatch recording = new CountDownLatch(1);
+            Thread game = new Thread(() -> {
+                for (int i = 0; i < 100_000; ++i) {
+                    store.record(result("Meni", 1, 0, false));
+                    if (i == 100) recording.countDown();
+                }
+            });
+            game.start();
+            recording.await();
+            store.close();
+            game.join();
+            assertTrue(store.flush(1_000), "a result queued after closing was never written");
+        }
+    }
+
+    @Test
+    void reopenedStore_RebuildsTotals() throws IOException {
+        try (StatsStore store = new StatsStore(new MockLogger(), file)) {
+            store.record(result("Meni", 3, 1, true));
+        }
+        // a line cut short by a crash
+        Files.write(file, "1000\t60000\t1\tMar".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (StatsStore store = new StatsStore(new MockLogger(), file)) {
+            store.record(result("Meni", 1, 0, false));
+        }
+        try (StatsStore store = new StatsStore(new MockLogger(), file)) {
+            StatsStore.Summary meni = store.summary("Meni");
+            assertEquals(2, meni.games);
+            assertEquals(4, meni.sets);
+            assertNull(store.summary("Mar"));
+        }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
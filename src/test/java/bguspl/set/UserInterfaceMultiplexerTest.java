@@ -0,0 +1,189 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UserInterfaceMultiplexerTest {
+
+    @Test
+    void eventsPostedWhileSinkIsCreated_Delivered() throws InterruptedException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        UserInterface ui = mock(UserInterface.class);
+        CountDownLatch created = new CountDownLatch(1);
+        multiplexer.addSink("slow", () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {}
+            created.countDown();
+            return ui;
+        }, 16, UserInterfaceMultiplexer.OverflowPolicy.DROP_OLDEST);
+
+        // the game does not wait for the sink
+        multiplexer.placeCard(3, 0);
+        multiplexer.setScore(1, 2);
+        assertEquals(1, created.getCount());
+
+        assertTrue(created.await(5, TimeUnit.SECONDS));
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).placeCard(3, 0);
+        order.verify(ui, timeout(5_000)).setScore(1, 2);
+        multiplexer.dispose();
+        verify(ui, timeout(5_000)).dispose();
+    }
+
+    @Test
+    void sinkThatFailsToStart_Dropped() {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        UserInterface other = mock(UserInterface.class);
+        multiplexer.addSink("broken", () -> {
+            throw new UnsupportedOperationException("no display");
+        }, 16, UserInterfaceMultiplexer.OverflowPolicy.DROP_OLDEST);
+        multiplexer.addSink("other", other, 16, UserInterfaceMultiplexer.OverflowPolicy.DROP_OLDEST);
+
+        multiplexer.placeCard(3, 0);
+        verify(other, timeout(5_000)).placeCard(3, 0);
+        multiplexer.dispose();
+        verify(other, timeout(5_000)).dispose();
+    }
+
+    /**
+     * @return - a sink that holds up its dispatcher thread in the first placeCard(0, 0) until the gate opens.
+     */
+    private static UserInterface blockedSink(CountDownLatch entered, CountDownLatch gate) {
+        UserInterface ui = mock(UserInterface.class);
+        doAnswer(invocation -> {
+            entered.countDown();
+            gate.await();
+            return null;
+        }).when(ui).placeCard(0, 0);
+        return ui;
+    }
+
+    private static UserInterface addBlockedSink(UserInterfaceMultiplexer multiplexer, int capacity,
+                                                UserInterfaceMultiplexer.OverflowPolicy policy,
+                                                CountDownLatch gate) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        UserInterface ui = blockedSink(entered, gate);
+        multiplexer.addSink("blocked", ui, capacity, policy);
+        multiplexer.placeCard(0, 0);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return ui;
+    }
+
+    @Test
+    void sinkBehind_GetsOnlyLatestCoalescedValues() throws InterruptedException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        CountDownLatch gate = new CountDownLatch(1);
+        UserInterface ui = addBlockedSink(multiplexer, 16, UserInterfaceMultiplexer.OverflowPolicy.DROP_NEWEST, gate);
+
+        for (long millis = 5000; millis >= 3000; millis -= 1000) multiplexer.setCountdown(millis, false);
+        multiplexer.setFreeze(0, 2000);
+        multiplexer.setFreeze(1, 1000);
+        multiplexer.setFreeze(0, 1000);
+        multiplexer.placeCard(7, 1);
+        multiplexer.setCountdown(2000, true);
+        assertEquals(4, multiplexer.pendingEvents());
+        gate.countDown();
+
+        verify(ui, timeout(5_000)).placeCard(7, 1);
+        multiplexer.dispose();
+        verify(ui, timeout(5_000)).dispose();
+        verify(ui).setCountdown(2000, true);
+        verify(ui).setCountdown(anyLong(), anyBoolean());
+        verify(ui).setFreeze(0, 1000);
+        verify(ui).setFreeze(1, 1000);
+        verify(ui, times(2)).setFreeze(anyInt(), anyLong());
+        assertEquals(0, multiplexer.droppedEvents());
+    }
+
+    @Test
+    void queueFull_DropNewest() throws InterruptedException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        CountDownLatch gate = new CountDownLatch(1);
+        UserInterface ui = addBlockedSink(multiplexer, 2, UserInterfaceMultiplexer.OverflowPolicy.DROP_NEWEST, gate);
+
+        for (int card = 1; card <= 4; ++card) multiplexer.placeCard(card, 1);
+        assertEquals(2, multiplexer.droppedEvents());
+        gate.countDown();
+
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).placeCard(1, 1);
+        order.verify(ui, timeout(5_000)).placeCard(2, 1);
+        multiplexer.dispose();
+        verify(ui, timeout(5_000)).dispose();
+        verify(ui, never()).placeCard(3, 1);
+        verify(ui, never()).placeCard(4, 1);
+    }
+
+    @Test
+    void queueFull_DropOldest() throws InterruptedException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        CountDownLatch gate = new CountDownLatch(1);
+        UserInterface ui = addBlockedSink(multiplexer, 2, UserInterfaceMultiplexer.OverflowPolicy.DROP_OLDEST, gate);
+
+        for (int card = 1; card <= 4; ++card) multiplexer.placeCard(card, 1);
+        assertEquals(2, multiplexer.droppedEvents());
+        gate.countDown();
+
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).placeCard(3, 1);
+        order.verify(ui, timeout(5_000)).placeCard(4, 1);
+        multiplexer.dispose();
+        verify(ui, timeout(5_000)).dispose();
+        verify(ui, never()).placeCard(1, 1);
+        verify(ui, never()).placeCard(2, 1);
+    }
+
+    @Test
+    void queueFull_ResyncShowsTheCurrentState() throws InterruptedException {
+        UserInterfaceMultiplexer multiplexer = new UserInterfaceMultiplexer(new MockLogger());
+        CountDownLatch gate = new CountDownLatch(1);
+        UserInterface ui = addBlockedSink(multiplexer, 4, UserInterfaceMultiplexer.OverflowPolicy.RESYNC, gate);
+
+        multiplexer.placeCard(1, 1);
+        multiplexer.placeToken(0, 1);
+        multiplexer.placeToken(1, 1);
+        multiplexer.removeToken(1, 1);
+        multiplexer.setScore(0, 3);
+        multiplexer.setCountdown(5000, false);
+        multiplexer.placeCard(2, 2);
+        assertEquals(3, multiplexer.pendingEvents());
+        assertEquals(5, multiplexer.droppedEvents());
+        gate.countDown();
+
+        InOrder order = inOrder(ui);
+        order.verify(ui, timeout(5_000)).removeTokens();
+        order.verify(ui, timeout(5_000)).replaceCards(new int[]{0, 1}, new int[]{0, 1});
+        order.verify(ui, timeout(5_000)).placeToken(0, 1);
+        order.verify(ui, timeout(5_000)).setScore(0, 3);
+        order.verify(ui, timeout(5_000)).setCountdown(5000, false);
+        order.verify(ui, timeout(5_000)).placeCard(2, 2);
+        multiplexer.dispose();
+        verify(ui, timeout(5_000)).dispose();
+        verify(ui, never()).placeToken(1, 1);
+        verify(ui, never()).placeCard(1, 1);
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the set engine against a brute force search that knows nothing about card masks or completions: it
+ * decodes the features of every card itself and tries every combination of cards, dropping a combination as soon as
+ * one of its features is neither all same nor all different.
+ */
+class UtilImplTest {
+
+    private static Config config(int featureSize, int featureCount, int parallelThreshold) {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("ParallelFindSetsThreshold", Integer.toString(parallelThreshold));
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        return new Config(new MockLogger(), properties);
+    }
+
+    private static int feature(Config config, int card, int feature) {
+        for (int f = config.featureCount - 1; f > feature; --f) card /= config.featureSize;
+        return card % config.featureSize;
+    }
+
+    /**
+     * @return - true iff every feature of the cards is all same or all different.
+     */
+    private static boolean bruteForceSet(Config config, int[] cards, int length) {
+        for (int f = 0; f < config.featureCount; ++f) {
+            Set<Integer> values = new HashSet<>();
+            for (int i = 0; i < length; ++i) values.add(feature(config, cards[i], f));
+            if (values.size() != 1 && values.size() != length) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return - every set in the deck, in the lexicographic order of the deck positions of its cards (each set
+     * sorted by card id).
+     */
+    private static List<int[]> bruteForceSets(Config config, List<Integer> deck) {
+        List<int[]> sets = new ArrayList<>();
+        search(config, deck, new int[config.featureSize], 0, 0, sets);
+        return sets;
+    }
+
+    private static void search(Config config, List<Integer> deck, int[] chosen, int length, int from,
+                               List<int[]> sets) {
+        if (length == chosen.length) {
+            int[] set = chosen.clone();
+            Arrays.sort(set);
+            sets.add(set);
+            return;
+        }
+        for (int i = from; i < deck.size(); ++i) {
+            chosen[length] = deck.get(i);
+            if (bruteForceSet(config, chosen, length + 1)) search(config, deck, chosen, length + 1, i + 1, sets);
+        }
+    }
+
+    private static List<Integer> fullDeck(Config config, boolean shuffled) {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        if (shuffled) Collections.shuffle(deck, new Random(config.deckSize));
+        return deck;
+    }
+
+    private static Set<List<Integer>> asSet(List<int[]> sets) {
+        return sets.stream().map(set -> Arrays.stream(set).boxed().collect(Collectors.toList()))
+                .collect(Collectors.toSet());
+    }
+
+    private static void assertSameSets(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i), "set " + i);
+    }
+
+    private static void assertFindsAllSets(int featureSize, int featureCount, int expectedCount) {
+        Config config = config(featureSize, featureCount, Integer.MAX_VALUE);
+        UtilImpl util = new UtilImpl(config);
+        for (boolean shuffled : new boolean[]{false, true}) {
+            List<Integer> deck = fullDeck(config, shuffled);
+            List<int[]> expected = bruteForceSets(config, deck);
+            assertEquals(expectedCount, expected.size());
+            assertSameSets(expected, util.findSets(deck, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void findSets_ThreeValuesFourFeatures() {
+        assertFindsAllSets(3, 4, 1080);
+    }
+
+    @Test
+    void findSets_FourValuesThreeFeatures() {
+        assertFindsAllSets(4, 3, 912);
+    }
+
+    @Test
+    void findSets_FiveValuesThreeFeatures() {
+        assertFindsAllSets(5, 3, 16275);
+    }
+
+    @Test
+    void findSets_TwoValues() {
+        // with two values any two cards are a set
+        assertFindsAllSets(2, 4, 120);
+    }
+
+    @Test
+    void findSets_StopsAtTheLimit() {
+        Config config = config(3, 4, Integer.MAX_VALUE);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = fullDeck(config, true);
+        List<int[]> expected = bruteForceSets(config, deck);
+
+        assertSameSets(expected.subList(0, 5), util.findSets(deck, 5));
+        assertSameSets(expected.subList(0, 1), util.findSets(deck, 1));
+        assertTrue(util.findSets(deck.subList(0, 2), 1).isEmpty());
+    }
+
+    @Test
+    void findSets_InParallelAboveTheThreshold() {
+        Config config = config(3, 4, 20);
+        UtilImpl util = new UtilImpl(config);
+        List<Integer> deck = fullDeck(config, true);
+        Set<List<Integer>> expected = asSet(bruteForceSets(config, deck));
+
+        List<int[]> all = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(expected.size(), all.size());
+        assertEquals(expected, asSet(all));
+
+        // the parallel search finds any sets, but exactly as many as asked and no set twice
+        List<int[]> some = util.findSets(deck, 7);
+        assertEquals(7, some.size());
+        assertEquals(7, asSet(some).size());
+        assertTrue(expected.containsAll(asSet(some)));
+    }
+
+    @Test
+    void testSet_MatchesBruteForce() {
+        for (int[] shape : new int[][]{{3, 4}, {4, 3}}) {
+            Config config = config(shape[0], shape[1], Integer.MAX_VALUE);
+            UtilImpl util = new UtilImpl(config);
+            int[] cards = new int[config.featureSize];
+            assertTestSetMatches(config, util, cards, 0, 0);
+        }
+    }
+
+    /**
+     * Compares testSet with the brute force check on every combination of cards.
+     */
+    private static void assertTestSetMatches(Config config, UtilImpl util, int[] cards, int length, int from) {
+        if (length == cards.length) {
+            if (util.testSet(cards) != bruteForceSet(config, cards, length))
+                assertEquals(bruteForceSet(config, cards, length), util.testSet(cards), Arrays.toString(cards));
+            return;
+        }
+        for (int card = from; card < config.deckSize; ++card) {
+            cards[length] = card;
+            assertTestSetMatches(config, util, cards, length + 1, card + 1);
+        }
+    }
+
+    @Test
+    void completeSet_MatchesBruteForce() {
+        for (int[] shape : new int[][]{{3, 4}, {4, 3}}) {
+            Config config = config(shape[0], shape[1], Integer.MAX_VALUE);
+            UtilImpl util = new UtilImpl(config);
+            List<Integer> deck = fullDeck(config, false);
+            for (int[] set : bruteForceSets(config, deck)) {
+                int[] known = Arrays.copyOf(set, set.length - 1);
+                assertEquals(set[set.length - 1], util.completeSet(known), Arrays.toString(set));
+            }
+        }
+        // 0 = (0,0,0), 1 = (0,0,1) and 4 = (0,1,0): the last feature is neither all same nor all different
+        assertEquals(-1, new UtilImpl(config(4, 3, Integer.MAX_VALUE)).completeSet(new int[]{0, 1, 4}));
+    }
+
+    @Test
+    void cardFeatures_MatchTheCardId() {
+        Config config = config(3, 4, Integer.MAX_VALUE);
+        UtilImpl util = new UtilImpl(config);
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int f = 0; f < config.featureCount; ++f) {
+                assertEquals(feature(config, card, f), util.cardFeature(card, f));
+                assertEquals(feature(config, card, f), util.cardToFeatures(card)[f]);
+            }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
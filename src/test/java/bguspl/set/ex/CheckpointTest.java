@@ -0,0 +1,96 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.StatsStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+
+    private Properties properties;
+    private Config config;
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        config = new Config(new MockLogger(), properties);
+        directory = Files.createTempDirectory("checkpoint");
+        file = directory.resolve("checkpoint.bin");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    private static Checkpoint checkpoint() {
+        GameStats stats = new GameStats(2);
+        stats.verdict(1, true);
+        stats.verdict(1, false);
+        return new Checkpoint(1234, 5000, new int[]{3, 1}, new int[]{0, 4, -1, 8}, new int[]{7, 2, 5}, stats);
+    }
+
+    @Test
+    void writtenCheckpoint_ReadBack() throws IOException {
+        CheckpointWriter writer = new CheckpointWriter(new MockLogger(), file, config.deckSize);
+        writer.submit(checkpoint());
+        writer.close();
+
+        Checkpoint read = Checkpoint.read(file, config);
+        assertEquals(1234, read.savedAtMillis());
+        assertEquals(5000, read.turnMillisLeft);
+        assertArrayEquals(new int[]{3, 1}, read.scores);
+        assertArrayEquals(new int[]{0, 4, -1, 8}, read.slots);
+        assertArrayEquals(new int[]{7, 2, 5}, read.deck);
+        StatsStore.PlayerResult result = read.stats.results(new String[]{"a", "b"}, read.scores, new int[0]).get(1);
+        assertEquals(1, result.sets);
+        assertEquals(1, result.penalties);
+        assertEquals(2, result.reactions);
+    }
+
+    @Test
+    void damagedCheckpoint_Rejected() {
+        ByteBuffer buffer = checkpoint().encode(config.deckSize);
+        buffer.put(33, (byte) (buffer.get(33) ^ 1)); // the time left in the turn
+        assertThrows(IOException.class, () -> Checkpoint.decode(buffer, config));
+
+        ByteBuffer cut = checkpoint().encode(config.deckSize);
+        cut.limit(cut.limit() - 3);
+        assertThrows(IOException.class, () -> Checkpoint.decode(cut, config));
+    }
+
+    @Test
+    void checkpointOfOtherTable_Rejected() {
+        ByteBuffer buffer = checkpoint().encode(config.deckSize);
+        properties.put("Columns", "3");
+        Config other = new Config(new MockLogger(), properties);
+        assertThrows(IOException.class, () -> Checkpoint.decode(buffer, other));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
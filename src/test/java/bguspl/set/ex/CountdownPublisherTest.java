@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CountdownPublisherTest {
+
+    Env env;
+    UserInterface ui;
+    CountdownPublisher countdown;
+
+    private static Config config(String warningSeconds, String resolutionSeconds) {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TurnTimeoutWarningSeconds", warningSeconds);
+        properties.put("TurnTimeoutWarningResolutionSeconds", resolutionSeconds);
+        return new Config(new MockLogger(), properties);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ui = mock(UserInterface.class);
+        env = new Env(new MockLogger(), config("5", "0.1"), ui, mock(Util.class));
+        countdown = new CountdownPublisher(env);
+        countdown.reset();
+    }
+
+    @Test
+    void update_PublishedOncePerSecond() {
+        for (long timeLeft = 60_000; timeLeft >= 58_000; timeLeft -= 10) countdown.update(timeLeft);
+
+        verify(ui).setCountdown(60_000, false);
+        verify(ui).setCountdown(59_000, false);
+        verify(ui).setCountdown(58_000, false);
+        verify(ui, times(3)).setCountdown(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void update_WarningPublishedAtItsResolution() {
+        for (long timeLeft = 5_500; timeLeft > 4_700; timeLeft -= 10) countdown.update(timeLeft);
+
+        // whole seconds until the warning starts, then every 100 milliseconds
+        verify(ui).setCountdown(5_000, false);
+        verify(ui).setCountdown(5_000, true);
+        verify(ui).setCountdown(4_900, true);
+        verify(ui).setCountdown(4_800, true);
+        verify(ui).setCountdown(4_700, true);
+        verify(ui, times(5)).setCountdown(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void update_NeverNegative() {
+        countdown.update(-30);
+        verify(ui).setCountdown(0, true);
+    }
+
+    @Test
+    void millisUntilChange_UntilTheNextPublishedValue() {
+        countdown.update(58_400);
+        assertEquals(401, countdown.millisUntilChange(58_400));
+        // the last second before the warning ends where the warning starts
+        countdown.update(5_400);
+        assertEquals(400, countdown.millisUntilChange(5_400));
+        countdown.update(4_950);
+        assertEquals(51, countdown.millisUntilChange(4_950));
+        assertEquals(1, countdown.millisUntilChange(0));
+    }
+
+    @Test
+    void millisUntilChange_ImmediatelyWhenStale() {
+        countdown.update(30_000);
+        assertEquals(1, countdown.millisUntilChange(28_500));
+    }
+
+    @Test
+    void reset_PublishesTheSameValueAgain() {
+        countdown.update(60_000);
+        countdown.update(60_000);
+        verify(ui).setCountdown(60_000, false);
+
+        clearInvocations(ui);
+        countdown.reset();
+        countdown.update(60_000);
+        verify(ui).setCountdown(60_000, false);
+    }
+
+    @Test
+    void reset_ReadsTheCurrentWarningSettings() {
+        env.publishConfig(config("10", "1"));
+        countdown.update(8_500);
+        verify(ui).setCountdown(8_000, false); // the turn keeps its settings
+
+        clearInvocations(ui);
+        countdown.reset();
+        countdown.update(8_500);
+        countdown.update(8_450);
+        verify(ui).setCountdown(8_000, true);
+        verify(ui, never()).setCountdown(8_400, true);
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Metrics;
+import bguspl.set.StatsStore;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs a real dealer with human players (whose key presses the tests make) on a small table.
+ */
+class DealerTest {
+
+    Properties properties;
+    Env env;
+    UserInterface ui;
+    StatsStore stats;
+    Table table;
+    Dealer dealer;
+    Player[] players;
+    Thread dealerThread;
+
+    /**
+     * The hints of every table state, in the order they were computed (the version and the sets).
+     */
+    BlockingQueue<Object[]> computed = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "0");
+        properties.put("Hints", "True");
+        properties.put("EnsureSetOnTable", "True");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+    }
+
+    /**
+     * Creates the game entities with the test properties, without starting the dealer.
+     */
+    private void create() {
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        ui = mock(UserInterface.class);
+        stats = mock(StatsStore.class);
+        env = new Env(logger, config, ui, new UtilImpl(config), new Metrics(), stats);
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        dealer.hints().addListener((version, sets) -> computed.add(new Object[]{version, sets}));
+    }
+
+    private void start() {
+        create();
+        dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (dealerThread == null) return;
+        dealer.terminate();
+        dealerThread.join(5_000);
+    }
+
+    /**
+     * @return - the sets of the first hints computed after the given table version.
+     */
+    @SuppressWarnings("unchecked")
+    private List<int[]> hintsAfter(long version) throws InterruptedException {
+        while (true) {
+            Object[] hints = computed.poll(5, TimeUnit.SECONDS);
+            assertNotNull(hints, "no hints computed after table version " + version);
+            if ((Long) hints[0] > version) return (List<int[]>) hints[1];
+        }
+    }
+
+    /**
+     * Resumes a game from a checkpoint taken with two players who scored 2 and 1, the deck in order and no card on
+     * the table, and saves the checkpoints of the game to a mock writer.
+     *
+     * @return - the statistics saved in the checkpoint.
+     */
+    private GameStats resume(CheckpointWriter writer) {
+        create();
+        GameStats saved = new GameStats(players.length);
+        saved.verdict(0, true);
+        saved.verdict(0, true);
+        saved.verdict(1, true);
+        saved.verdict(1, false);
+        int[] slots = new int[env.config.tableSize], deck = new int[env.config.deckSize - 6];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < deck.length; ++i) deck[i] = i;
+        dealer.resume(new Checkpoint(0, 30_000, new int[]{2, 1}, slots, deck, saved.copy()));
+        dealer.checkpointTo(writer, 60_000);
+        dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        return saved;
+    }
+
+    @Test
+    void suspended_LastCheckpointKeepsTheTableAndTheGame() throws InterruptedException {
+        CheckpointWriter writer = mock(CheckpointWriter.class);
+        GameStats saved = resume(writer);
+        hintsAfter(-1); // the cards are dealt
+
+        dealer.suspend();
+        dealerThread.join(5_000);
+        assertTrue(dealer.isSuspended());
+        verify(ui, never()).announceWinner(any());
+        verify(stats, never()).record(any());
+
+        ArgumentCaptor<Checkpoint> submitted = ArgumentCaptor.forClass(Checkpoint.class);
+        verify(writer, atLeastOnce()).submit(submitted.capture());
+        Checkpoint last = submitted.getValue();
+        assertArrayEquals(new int[]{2, 1}, last.scores);
+        assertEquals(env.config.tableSize, Arrays.stream(last.slots).filter(card -> card >= 0).count());
+        assertEquals(env.config.deckSize - 6, last.slots.length + last.deck.length);
+        StatsStore.PlayerResult expected = saved.results(env.config.playerNames, last.scores, new int[0]).get(0);
+        StatsStore.PlayerResult kept = last.stats.results(env.config.playerNames, last.scores, new int[0]).get(0);
+        assertEquals(expected.gameStartMillis, kept.gameStartMillis);
+        assertEquals(2, kept.sets);
+    }
+
+    @Test
+    void resumedGame_RecordedAsTheSameGame() throws InterruptedException {
+        GameStats saved = resume(mock(CheckpointWriter.class));
+        hintsAfter(-1);
+
+        dealer.terminate();
+        dealerThread.join(5_000);
+        assertFalse(dealer.isSuspended());
+        ArgumentCaptor<StatsStore.PlayerResult> recorded = ArgumentCaptor.forClass(StatsStore.PlayerResult.class);
+        verify(stats, times(2)).record(recorded.capture());
+        long gameStartMillis = saved.results(env.config.playerNames, new int[2], new int[0]).get(0).gameStartMillis;
+        for (StatsStore.PlayerResult result : recorded.getAllValues())
+            assertEquals(gameStartMillis, result.gameStartMillis);
+        assertEquals(2, recorded.getAllValues().get(0).score);
+        assertEquals(2, recorded.getAllValues().get(0).sets);
+        assertEquals(1, recorded.getAllValues().get(1).penalties);
+    }
+
+    @Test
+    void setFound_NewHintsRequested() throws InterruptedException {
+        start();
+        List<int[]> sets = hintsAfter(-1);
+        assertFalse(sets.isEmpty());
+        long version = table.version();
+
+        for (int slot : sets.get(0)) players[0].keyPressed(slot);
+
+        // the cards of the set are replaced, and the hints of the new table are computed without any other change
+        hintsAfter(version);
+        assertTrue(table.version() > version);
+    }
+
+    @Test
+    void setFound_PointAwardedByDealer() throws InterruptedException {
+        start();
+        List<int[]> sets = hintsAfter(-1);
+        long version = table.version();
+
+        for (int slot : sets.get(0)) players[0].keyPressed(slot);
+        hintsAfter(version);
+
+        // the point is on the scoreboard once the cards are replaced, even if the player never gets to run again
+        dealer.terminate();
+        dealerThread.join(5_000);
+        assertEquals(1, dealer.scoreboard().score(0));
+        assertEquals(0, dealer.scoreboard().score(1));
+    }
+
+    @Test
+    void noTurnTimeout_TurnLastsWhileTheTableHasASet() throws InterruptedException {
+        properties.put("TurnTimeoutSeconds", "0");
+        properties.remove("EnsureSetOnTable"); // on by default without a turn timeout
+        start();
+        List<int[]> sets = hintsAfter(-1);
+        assertFalse(sets.isEmpty());
+
+        // the dealer keeps the table instead of reshuffling it over and over
+        Thread.sleep(1_500);
+        assertEquals(0, env.metrics.counter("dealer.reshuffles").sum());
+        assertEquals(env.config.tableSize, table.countCards());
+        verify(ui, atLeastOnce()).setElapsed(anyLong());
+        verify(ui, never()).setCountdown(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void terminatedBeforeStarting_ComputerThreadsStopped() throws InterruptedException {
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        create();
+        dealer.terminate();
+        dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        dealerThread.join(10_000);
+
+        assertFalse(dealerThread.isAlive());
+        assertTrue(dealer.computerScheduler().isTerminated());
+    }
+
+    @Test
+    void terminatedWhilePlaying_ComputerThreadsStopped() throws InterruptedException {
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        start();
+        hintsAfter(-1);
+        dealer.terminate();
+        dealerThread.join(10_000);
+
+        assertFalse(dealerThread.isAlive());
+        assertTrue(dealer.computerScheduler().isTerminated());
+    }
+
+    /**
+     * Places cards that include no set on the table, choosing them from the deck in order.
+     *
+     * @return - the cards placed (removed from the deck).
+     */
+    private List<Integer> placeWithoutSet(int count) {
+        List<Integer> placed = new ArrayList<>();
+        for (Integer card : new ArrayList<>(dealer.deck())) {
+            if (placed.size() == count) break;
+            placed.add(card);
+            if (!env.util.findSets(placed, 1).isEmpty()) placed.remove(card);
+        }
+        assertEquals(count, placed.size());
+        for (int slot = 0; slot < placed.size(); ++slot) table.placeCard(placed.get(slot), slot);
+        dealer.deck().removeAll(placed);
+        return placed;
+    }
+
+    private void assertSetAfterPlacing(List<Integer> kept, List<Integer> deckBefore, int placed) {
+        assertEquals(new HashSet<>(deckBefore), new HashSet<>(dealer.deck()));
+        assertEquals(deckBefore.size(), dealer.deck().size());
+        List<Integer> cards = new ArrayList<>(kept);
+        cards.addAll(dealer.deck().subList(0, placed));
+        assertFalse(env.util.findSets(cards, 1).isEmpty(), "no set in " + cards);
+    }
+
+    @Test
+    void moveSetToDeckFront_OneCardCompletesTheTable() {
+        create();
+        Collections.shuffle(dealer.deck(), new Random(1));
+        List<Integer> onTable = placeWithoutSet(env.config.tableSize - 1);
+        List<Integer> deckBefore = new ArrayList<>(dealer.deck());
+
+        dealer.moveSetToDeckFront(1, new int[0]);
+        assertSetAfterPlacing(onTable, deckBefore, 1);
+    }
+
+    @Test
+    void moveSetToDeckFront_TwoCardsCompleteTheTable() {
+        create();
+        Collections.shuffle(dealer.deck(), new Random(2));
+        List<Integer> onTable = placeWithoutSet(env.config.tableSize - 2);
+        // keep only deck cards that complete no pair of the table, so the set must take two of them
+        dealer.deck().removeIf(card -> {
+            for (int a = 0; a < onTable.size(); ++a)
+                for (int b = a + 1; b < onTable.size(); ++b)
+                    if (env.util.testSet(new int[]{onTable.get(a), onTable.get(b), card})) return true;
+            return false;
+        });
+        List<Integer> deckBefore = new ArrayList<>(dealer.deck());
+
+        dealer.moveSetToDeckFront(2, new int[0]);
+        assertSetAfterPlacing(onTable, deckBefore, 2);
+    }
+
+    @Test
+    void moveSetToDeckFront_FreedSlotsDoNotCount() {
+        create();
+        Collections.shuffle(dealer.deck(), new Random(3));
+        List<Integer> kept = placeWithoutSet(env.config.tableSize - 3);
+        int[] freed = new int[3];
+        for (int i = 0; i < freed.length; ++i) {
+            freed[i] = kept.size() + i;
+            table.placeCard(dealer.deck().remove(0), freed[i]);
+        }
+        List<Integer> deckBefore = new ArrayList<>(dealer.deck());
+
+        dealer.moveSetToDeckFront(3, freed);
+        assertSetAfterPlacing(kept, deckBefore, 3);
+    }
+
+    @Test
+    void moveSetToDeckFront_NothingToDo() {
+        create();
+        Collections.shuffle(dealer.deck(), new Random(4));
+        List<Integer> onTable = placeWithoutSet(env.config.tableSize - 1);
+        // no deck card completes a set with the table
+        dealer.deck().removeIf(card -> {
+            List<Integer> cards = new ArrayList<>(onTable);
+            cards.add(card);
+            return !env.util.findSets(cards, 1).isEmpty();
+        });
+        List<Integer> deckBefore = new ArrayList<>(dealer.deck());
+        dealer.moveSetToDeckFront(1, new int[0]);
+        assertEquals(deckBefore, dealer.deck());
+
+    }
+
+    @Test
+    void moveSetToDeckFront_TableHasASet() {
+        create();
+        int[] set = env.util.findSets(dealer.deck(), 1).get(0);
+        for (int slot = 0; slot < set.length; ++slot) {
+            table.placeCard(set[slot], slot);
+            dealer.deck().remove((Integer) set[slot]);
+        }
+        Collections.shuffle(dealer.deck(), new Random(5));
+        List<Integer> deckBefore = new ArrayList<>(dealer.deck());
+
+        dealer.moveSetToDeckFront(env.config.tableSize - set.length, new int[0]);
+        assertEquals(deckBefore, dealer.deck());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
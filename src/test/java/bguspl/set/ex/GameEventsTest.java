@@ -0,0 +1,83 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class GameEventsTest {
+
+    @Test
+    void tableOperations_RecordedWhenEnabled() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, mock(UserInterface.class), mock(Util.class));
+        Table table = new Table(env);
+
+        Path file = Files.createTempFile("game-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("bguspl.set.CardPlaced");
+            recording.enable("bguspl.set.TokenPlaced");
+            recording.enable("bguspl.set.TokenRemoved");
+            recording.enable("bguspl.set.CardRemoved");
+            recording.start();
+
+            table.placeCard(5, 2);
+            table.placeToken(1, 2);
+            table.removeCard(2);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            // removing the card takes the token off it too
+            Set<String> names = events.stream().map(event -> event.getEventType().getName())
+                    .filter(name -> name.startsWith("bguspl.set.")).collect(Collectors.toSet());
+            assertEquals(new HashSet<>(Arrays.asList("bguspl.set.CardPlaced", "bguspl.set.TokenPlaced",
+                    "bguspl.set.TokenRemoved", "bguspl.set.CardRemoved")), names);
+
+            RecordedEvent placed = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("bguspl.set.CardPlaced"))
+                    .findFirst().orElseThrow(AssertionError::new);
+            assertEquals(5, placed.getInt("card"));
+            assertEquals(2, placed.getInt("slot"));
+
+            RecordedEvent token = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("bguspl.set.TokenPlaced"))
+                    .findFirst().orElseThrow(AssertionError::new);
+            assertEquals(1, token.getInt("player"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
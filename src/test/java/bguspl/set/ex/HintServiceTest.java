@@ -0,0 +1,103 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HintServiceTest {
+
+    MockLogger logger;
+    Table table;
+    HintService hints;
+
+    private void setUp(boolean enabled) {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("Hints", Boolean.toString(enabled));
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, mock(UserInterface.class), new UtilImpl(config));
+        table = new Table(env);
+        hints = new HintService(env, table);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hints.shutdown();
+    }
+
+    @Test
+    void hints_ComputedInBackgroundForCurrentTable() throws InterruptedException {
+        setUp(true);
+        BlockingQueue<List<int[]>> computed = new ArrayBlockingQueue<>(4);
+        hints.addListener((version, sets) -> computed.add(sets));
+
+        // cards 0, 1 and 2 differ only in the last feature, which is all different
+        table.placeCard(0, 3);
+        table.placeCard(1, 0);
+        table.placeCard(2, 1);
+        table.placeCard(4, 2);
+        hints.tableChanged();
+
+        List<int[]> sets = computed.poll(5, TimeUnit.SECONDS);
+        assertNotNull(sets);
+        assertEquals(1, sets.size());
+        assertArrayEquals(new int[]{0, 1, 3}, sets.get(0));
+        assertEquals(sets, hints.hints());
+        assertEquals(1, logger.messages.size());
+        assertTrue(logger.messages.get(0).contains("slots: [0, 1, 3]"), logger.messages.get(0));
+
+        // the cached hints do not belong to the new table
+        table.removeCard(0);
+        assertTrue(hints.hints().isEmpty());
+    }
+
+    @Test
+    void hints_NothingComputedWhenDisabled() throws InterruptedException {
+        setUp(false);
+        BlockingQueue<List<int[]>> computed = new ArrayBlockingQueue<>(4);
+        hints.addListener((version, sets) -> computed.add(sets));
+
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        hints.tableChanged();
+
+        assertEquals(null, computed.poll(200, TimeUnit.MILLISECONDS));
+        assertTrue(hints.hints().isEmpty());
+    }
+
+    static class MockLogger extends Logger {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        protected MockLogger() {
+            super("", null);
+        }
+
+        @Override
+        public void info(String msg) {
+            messages.add(msg);
+        }
+    }
+}
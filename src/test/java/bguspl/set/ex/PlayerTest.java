@@ -43,6 +43,7 @@ class PlayerTest {
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
         Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        when(dealer.scoreboard()).thenReturn(new Scoreboard(env.config.players));
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -61,7 +62,8 @@ class PlayerTest {
         // calculate the expected score for later
         int expectedScore = player.score() + 1;
 
-        // call the method we are testing
+        // the dealer awards the point when it checks the set, then the player shows it
+        dealer.scoreboard().increment(player.id);
         player.point();
 
         // check that the score was increased correctly
@@ -0,0 +1,68 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScoreboardTest {
+
+    Scoreboard scoreboard;
+
+    @BeforeEach
+    void setUp() {
+        scoreboard = new Scoreboard(4);
+    }
+
+    @Test
+    void increment_UpdatesScoreAndNotifies() {
+        AtomicInteger notified = new AtomicInteger(-1);
+        scoreboard.addListener((player, score) -> notified.set(player * 100 + score));
+
+        assertEquals(1, scoreboard.increment(2));
+        assertEquals(2, scoreboard.increment(2));
+        assertEquals(2, scoreboard.score(2));
+        assertEquals(202, notified.get());
+    }
+
+    @Test
+    void leaderboard_RanksByScoreThenId() {
+        scoreboard.increment(3);
+        scoreboard.increment(3);
+        scoreboard.increment(1);
+        scoreboard.increment(2);
+
+        assertArrayEquals(new int[]{3, 1, 2, 0}, scoreboard.leaderboard());
+    }
+
+    @Test
+    void winners_AllPlayersTieWithoutPoints() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, scoreboard.winners());
+        scoreboard.increment(0);
+        scoreboard.increment(3);
+        assertArrayEquals(new int[]{0, 3}, scoreboard.winners());
+    }
+
+    @Test
+    void winners_OfGivenScores() {
+        assertArrayEquals(new int[]{1, 2}, Scoreboard.winners(new int[]{2, 5, 5, 0}));
+    }
+
+    @Test
+    void snapshot_CountsConcurrentIncrements() throws InterruptedException {
+        Thread[] threads = new Thread[scoreboard.players()];
+        for (int i = 0; i < threads.length; ++i) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; ++j) scoreboard.increment(player);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertArrayEquals(new int[]{10000, 10000, 10000, 10000}, scoreboard.snapshot());
+    }
+}
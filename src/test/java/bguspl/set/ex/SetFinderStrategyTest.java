@@ -0,0 +1,123 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SetFinderStrategyTest {
+
+    Env env;
+    Table table;
+    SetFinderStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, mock(UserInterface.class), new UtilImpl(config));
+        table = new Table(env);
+        strategy = new SetFinderStrategy(env, table, 0, new ThinkTime(env));
+    }
+
+    /**
+     * Fills the table with the first cards of a shuffled deck.
+     *
+     * @return - the cards on the table.
+     */
+    private List<Integer> deal(long seed) {
+        List<Integer> deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(seed));
+        List<Integer> cards = new ArrayList<>(deck.subList(0, env.config.tableSize));
+        for (int slot = 0; slot < cards.size(); ++slot) table.placeCard(cards.get(slot), slot);
+        return cards;
+    }
+
+    /**
+     * Presses the keys the strategy chooses (the way the player thread applies them) until it has nothing to press.
+     */
+    private void play() {
+        for (int presses = 0; presses < 2 * Table.MAX_TOKENS; ++presses) {
+            int slot = strategy.nextSlot();
+            if (slot < 0) return;
+            if (table.hasToken(0, slot)) table.removeToken(0, slot);
+            else table.placeToken(0, slot);
+        }
+        throw new AssertionError("the strategy kept pressing keys");
+    }
+
+    private int[] tokenSlots() {
+        int[] slots = new int[table.numOfTokens(0)];
+        for (int i = 0; i < slots.length; ++i) slots[i] = table.tokenSlot(0, i);
+        Arrays.sort(slots);
+        return slots;
+    }
+
+    private int[] tokenCards() {
+        int[] cards = new int[table.numOfTokens(0)];
+        for (int i = 0; i < cards.length; ++i) cards[i] = table.slotToCard[table.tokenSlot(0, i)];
+        return cards;
+    }
+
+    @Test
+    void nextSlot_PressesTheSlotsOfALegalSet() {
+        for (long seed = 0; seed < 20; ++seed) {
+            setUp();
+            if (env.util.findSets(deal(seed), 1).isEmpty()) continue;
+
+            play();
+            int[] cards = tokenCards();
+            assertEquals(Table.MAX_TOKENS, cards.length);
+            assertTrue(env.util.testSet(cards), "seed " + seed);
+        }
+    }
+
+    @Test
+    void nextSlot_TakesBackTokensOffTheSetFirst() {
+        // the only set of 0, 1, 2, 3 and 4 (0000, 0001, 0002, 0010 and 0011) is 0, 1 and 2
+        int[] cards = {3, 0, 4, 1, 2};
+        for (int slot = 0; slot < cards.length; ++slot) table.placeCard(cards[slot], slot);
+        table.placeToken(0, 0);
+        table.placeToken(0, 1);
+
+        assertEquals(0, strategy.nextSlot());
+        play();
+        assertArrayEquals(new int[]{1, 3, 4}, tokenSlots());
+    }
+
+    @Test
+    void nextSlot_NothingToPressWithoutASet() {
+        // 0, 1, 3 and 4 (0000, 0001, 0010, 0011) include no set
+        int[] cards = {0, 1, 3, 4};
+        for (int slot = 0; slot < cards.length; ++slot) table.placeCard(cards[slot], slot);
+        assertEquals(-1, strategy.nextSlot());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
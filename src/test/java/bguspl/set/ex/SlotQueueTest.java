@@ -0,0 +1,62 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotQueueTest {
+
+    SlotQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new SlotQueue(3);
+    }
+
+    @Test
+    void offer_RejectsWhenFull() {
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(3));
+        assertFalse(queue.offer(4));
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    void take_ReturnsSlotsInOrderAcrossWrapAround() throws InterruptedException {
+        for (int round = 0; round < 5; ++round) {
+            queue.offer(round);
+            queue.offer(round + 10);
+            assertEquals(round, queue.take());
+            assertEquals(round + 10, queue.take());
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void take_WaitsForOffer() throws InterruptedException {
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {}
+            queue.offer(7);
+        });
+        producer.start();
+        assertEquals(7, queue.take());
+        producer.join();
+    }
+
+    @Test
+    void take_ThrowsWhenInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            queue.take();
+            throw new AssertionError("take returned on an empty queue");
+        } catch (InterruptedException expected) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+}
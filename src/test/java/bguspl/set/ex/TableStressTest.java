@@ -0,0 +1,190 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hammers the table from a dealer thread and several player threads at once, and checks the table invariants while
+ * they run (holding the table lock, which all mutations take) and after they stop.
+ */
+class TableStressTest {
+
+    private static final long RUN_MILLIS = 500;
+
+    Config config;
+    Table table;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "4");
+        properties.put("PlayerKeys1", "81,87,69,82,84,89");
+        properties.put("PlayerKeys2", "85,73,79,80,72,74");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env);
+    }
+
+    /**
+     * @return - a description of the first broken invariant, or null if all hold.
+     */
+    private String violation() {
+        for (int slot = 0; slot < config.tableSize; ++slot) {
+            Integer card = table.slotToCard[slot];
+            if (card != null && !Integer.valueOf(slot).equals(table.cardToSlot[card]))
+                return "slot " + slot + " has card " + card + " which is in slot " + table.cardToSlot[card];
+        }
+        for (int card = 0; card < config.deckSize; ++card) {
+            Integer slot = table.cardToSlot[card];
+            if (slot != null && !Integer.valueOf(card).equals(table.slotToCard[slot]))
+                return "card " + card + " is in slot " + slot + " which has card " + table.slotToCard[slot];
+        }
+        for (int player = 0; player < config.players; ++player) {
+            int tokens = 0;
+            for (int i = 0; i < Table.MAX_TOKENS; ++i) {
+                int slot = table.tokenSlot(player, i);
+                if (slot < 0) continue;
+                ++tokens;
+                if (table.slotToCard[slot] == null)
+                    return "player " + player + " has a token on empty slot " + slot;
+                for (int j = i + 1; j < Table.MAX_TOKENS; ++j)
+                    if (table.tokenSlot(player, j) == slot)
+                        return "player " + player + " has two tokens on slot " + slot;
+            }
+            if (tokens != table.numOfTokens(player))
+                return "player " + player + " has " + tokens + " tokens but numOfTokens is " + table.numOfTokens(player);
+        }
+        return null;
+    }
+
+    private void recordViolation(AtomicReference<String> failure) {
+        synchronized (table) {
+            String violation = violation();
+            if (violation != null) failure.compareAndSet(null, violation);
+        }
+    }
+
+    /**
+     * Runs the dealer and players against the table, checking the invariants meanwhile.
+     *
+     * @param dealer - the dealer's table operations (called repeatedly with the dealer's deck).
+     * @return - the first violation found (null if none).
+     */
+    private String hammer(DealerStep dealer) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        List<Integer> deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card) deck.add(card);
+        Collections.shuffle(deck);
+        for (int slot = 0; slot < config.tableSize; ++slot) table.placeCard(deck.remove(0), slot);
+
+        threads.add(new Thread(() -> {
+            awaitQuietly(start);
+            while (!stop.get()) dealer.step(deck);
+        }, "dealer"));
+        for (int i = 0; i < config.players; ++i) {
+            int player = i;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    int slot = random.nextInt(config.tableSize);
+                    // the same check-then-act the player thread does
+                    if (table.hasToken(player, slot)) table.removeToken(player, slot);
+                    else table.placeToken(player, slot);
+                }
+            }, "player" + player));
+        }
+        threads.add(new Thread(() -> {
+            awaitQuietly(start);
+            while (!stop.get()) recordViolation(failure);
+        }, "checker"));
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        Thread.sleep(RUN_MILLIS);
+        stop.set(true);
+        for (Thread thread : threads) thread.join();
+
+        recordViolation(failure);
+        return failure.get();
+    }
+
+    private interface DealerStep {
+        void step(List<Integer> deck);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void invariantsHold_WhileDealerReplacesCards() throws InterruptedException {
+        String failure = hammer(deck -> {
+            int slot = ThreadLocalRandom.current().nextInt(config.tableSize);
+            Integer card = table.slotToCard[slot];
+            if (card == null) return;
+            table.removeCard(slot);
+            deck.add(card);
+            table.placeCard(deck.remove(0), slot);
+        });
+        assertNull(failure);
+    }
+
+    @Test
+    void invariantsHold_WhileDealerReplacesSlotsInBulk() throws InterruptedException {
+        String failure = hammer(deck -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(config.tableSize - 2);
+            int[] slots = {first, first + 1, first + 2};
+            int[] cards = new int[slots.length];
+            for (int i = 0; i < slots.length; ++i) {
+                deck.add(table.slotToCard[slots[i]]);
+                cards[i] = deck.remove(0);
+            }
+            table.replaceSlots(slots, cards);
+        });
+        assertNull(failure);
+    }
+
+    @Test
+    void invariantsHold_WhileDealerClearsAndRefillsTable() throws InterruptedException {
+        String failure = hammer(deck -> {
+            for (int slot = 0; slot < config.tableSize; ++slot) {
+                Integer card = table.slotToCard[slot];
+                if (card != null) {
+                    table.removeCard(slot);
+                    deck.add(card);
+                }
+            }
+            Collections.shuffle(deck);
+            for (int slot = 0; slot < config.tableSize; ++slot) table.placeCard(deck.remove(0), slot);
+        });
+        assertNull(failure);
+    }
+}
@@ -6,18 +6,25 @@ import bguspl.set.UserInterface;
 import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 class TableTest {
 
     Table table;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private Env env;
 
     @BeforeEach
     void setUp() {
@@ -35,7 +42,7 @@ class TableTest {
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -95,6 +102,41 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void replaceSlots_SwapsCardsAndClearsTokens() {
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(0, 3);
+        table.placeToken(1, 1);
+
+        table.replaceSlots(new int[]{1, 2}, new int[]{10, -1});
+
+        assertEquals(10, (int) slotToCard[1]);
+        assertEquals(1, (int) cardToSlot[10]);
+        assertEquals(null, cardToSlot[1]);
+        assertEquals(null, slotToCard[2]);
+        assertEquals(null, cardToSlot[2]);
+        assertEquals(1, table.numOfTokens(0));
+        assertEquals(0, table.numOfTokens(1));
+    }
+
+    @Test
+    void replaceSlots_RemovesTheOldTokensFromTheUserInterfaceFirst() {
+        UserInterface ui = mock(UserInterface.class);
+        table = new Table(new Env(env.logger, env.config, ui, env.util), slotToCard, cardToSlot);
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+
+        table.replaceSlots(new int[]{1, 2}, new int[]{10, -1});
+
+        InOrder order = inOrder(ui);
+        order.verify(ui).removeToken(0, 1);
+        order.verify(ui).removeToken(1, 1);
+        order.verify(ui).replaceCards(new int[]{1, 2}, new int[]{10, -1});
+        verify(ui, never()).removeTokens(anyInt());
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -138,6 +180,11 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
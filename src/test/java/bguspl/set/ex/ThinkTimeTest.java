@@ -0,0 +1,90 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ThinkTimeTest {
+
+    private static final int DRAWS = 10_000;
+
+    private static Config config(String distribution, String seconds, String jitterSeconds) {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        properties.put("ComputerThinkDistribution", distribution);
+        properties.put("ComputerThinkSeconds", seconds);
+        properties.put("ComputerThinkJitterSeconds", jitterSeconds);
+        return new Config(new MockLogger(), properties);
+    }
+
+    private static ThinkTime thinkTime(Config config) {
+        return new ThinkTime(new Env(new MockLogger(), config, mock(UserInterface.class), mock(Util.class)));
+    }
+
+    @Test
+    void fixed_AlwaysTheMean() {
+        ThinkTime thinkTime = thinkTime(config("fixed", "0.05", "0.03"));
+        for (int i = 0; i < DRAWS; ++i) assertEquals(50, thinkTime.next());
+    }
+
+    @Test
+    void uniform_WithinTheJitterOfTheMean() {
+        ThinkTime thinkTime = thinkTime(config("uniform", "0.05", "0.03"));
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < DRAWS; ++i) {
+            long millis = thinkTime.next();
+            min = Math.min(min, millis);
+            max = Math.max(max, millis);
+        }
+        assertTrue(min >= 20, "min " + min);
+        assertTrue(max <= 80, "max " + max);
+        // the whole range is used
+        assertTrue(min < 25 && max > 75, "range " + min + ".." + max);
+    }
+
+    @Test
+    void gaussian_AroundTheMean() {
+        ThinkTime thinkTime = thinkTime(config("gaussian", "0.05", "0.01"));
+        long total = 0;
+        for (int i = 0; i < DRAWS; ++i) {
+            long millis = thinkTime.next();
+            assertTrue(millis >= 1, "millis " + millis);
+            total += millis;
+        }
+        assertEquals(50, total / (double) DRAWS, 1);
+    }
+
+    @Test
+    void next_AtLeastOneMillisecond() {
+        ThinkTime thinkTime = thinkTime(config("uniform", "0", "0.01"));
+        for (int i = 0; i < DRAWS; ++i) assertTrue(thinkTime.next() >= 1);
+    }
+
+    @Test
+    void next_ReadsTheCurrentConfiguration() {
+        Env env = new Env(new MockLogger(), config("fixed", "0.05", "0"), mock(UserInterface.class),
+                mock(Util.class));
+        ThinkTime thinkTime = new ThinkTime(env);
+        assertEquals(50, thinkTime.next());
+        env.publishConfig(config("fixed", "0.2", "0"));
+        assertEquals(200, thinkTime.next());
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}